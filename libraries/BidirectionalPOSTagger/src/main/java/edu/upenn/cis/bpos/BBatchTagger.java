@@ -0,0 +1,182 @@
+package edu.upenn.cis.bpos;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Batch tagging with length buckets. The input is read in batches of
+// <batch size> sentences; the sentences of a batch are grouped by length
+// and handed to the workers longest first, so that the expensive long
+// sentences do not end up alone on one worker at the end of the batch.
+// The results are written in input order, the same as the output of bpos.
+public class BBatchTagger
+{
+
+    public BBatchTagger(BTagger btagger, int i, int j)
+    {
+        tagger = btagger;
+        nworker = i;
+        batchSize = j;
+        workers = Executors.newFixedThreadPool(i, BThreads.daemonThreads("bpos-worker"));
+    }
+
+    public static void main(String args[])
+    {
+        if(args.length != 5 && args.length != 6)
+        {
+            System.out.println("Usage: java -classpath $CLASSPATH edu.upenn.cis.bpos.BBatchTagger <beam width[:margin]> <test file> <weights> <lables> <threads> [<batch size>]");
+            System.out.println("For example: java -classpath $CLASSPATH edu.upenn.cis.bpos.BBatchTagger 1 data/sample.raw data/k3.fea data/postag.txt 4 > sample.hypo");
+            return;
+        }
+        SWordLib.init();
+        SLabelLib.init();
+        BLinTagLearn.setBeam(args[0]);
+        BTagger btagger = BTagger.load(args[2], args[3]);
+        if(btagger == null)
+            return;
+        int i = args.length != 6 ? 4096 : Integer.parseInt(args[5]);
+        BBatchTagger bbatchtagger = new BBatchTagger(btagger, Integer.parseInt(args[4]), i);
+        try
+        {
+            BufferedReader bufferedreader = new BufferedReader(new FileReader(args[1]));
+            System.err.println((new StringBuilder()).append("Open Test File : ").append(args[1]).toString());
+            BufferedWriter bufferedwriter = new BufferedWriter(new OutputStreamWriter(System.out), 0x10000);
+            long l = bbatchtagger.run(bufferedreader, bufferedwriter);
+            bufferedwriter.flush();
+            bufferedreader.close();
+            System.err.println((new StringBuilder()).append("").append(l).append(" samples tagged").toString());
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+        }
+        bbatchtagger.shutdown();
+    }
+
+    public long run(BufferedReader bufferedreader, Writer writer)
+        throws IOException
+    {
+        String s = System.getProperty("line.separator");
+        String as[] = new String[batchSize];
+        long l = 0L;
+        do
+        {
+            int i;
+            for(i = 0; i < batchSize; i++)
+            {
+                as[i] = bufferedreader.readLine();
+                if(as[i] == null)
+                    break;
+            }
+
+            if(i == 0)
+                break;
+            String as1[] = new String[i];
+            System.arraycopy(as, 0, as1, 0, i);
+            String as2[] = tagBatch(as1);
+            for(int j = 0; j < i; j++)
+            {
+                writer.write(as2[j]);
+                writer.write(s);
+            }
+
+            l += i;
+        } while(true);
+        return l;
+    }
+
+    public String[] tagBatch(String as[])
+        throws IOException
+    {
+        final SWord asword[][] = new SWord[as.length][];
+        for(int i = 0; i < as.length; i++)
+        {
+            String as1[] = BTagger.split(as[i]);
+            asword[i] = new SWord[as1.length];
+            for(int j = 0; j < as1.length; j++)
+                asword[i][j] = SWordLib.getSWord(as1[j]);
+
+        }
+
+        final int order[] = longestFirst(asword);
+        final String result[] = new String[as.length];
+        final AtomicInteger next = new AtomicInteger();
+        int k = Math.min(nworker, as.length);
+        final CountDownLatch done = new CountDownLatch(k);
+        for(int l = 0; l < k; l++)
+            workers.execute(new Runnable() {
+
+                public void run()
+                {
+                    try
+                    {
+                        int i1;
+                        while((i1 = next.getAndIncrement()) < order.length)
+                        {
+                            int j1 = order[i1];
+                            try
+                            {
+                                result[j1] = BTagger.format(tagger.tag(new BLinTagSample(asword[j1])));
+                            }
+                            catch(RuntimeException runtimeexception)
+                            {
+                                System.err.println((new StringBuilder()).append("Sentence ").append(j1).append(" : ").append(runtimeexception.toString()).toString());
+                                result[j1] = "";
+                            }
+                        }
+                    }
+                    finally
+                    {
+                        done.countDown();
+                    }
+                }
+
+            });
+
+        try
+        {
+            done.await();
+        }
+        catch(InterruptedException interruptedexception)
+        {
+            throw new InterruptedIOException();
+        }
+        for(int i = 0; i < result.length; i++)
+            if(result[i] == null)
+                result[i] = "";
+
+        return result;
+    }
+
+    static int[] longestFirst(SWord asword[][])
+    {
+        int i = 0;
+        for(int j = 0; j < asword.length; j++)
+            if(asword[j].length / BUCKET_WIDTH > i)
+                i = asword[j].length / BUCKET_WIDTH;
+
+        int ai[] = new int[i + 2];
+        for(int k = 0; k < asword.length; k++)
+            ai[(i - asword[k].length / BUCKET_WIDTH) + 1]++;
+
+        for(int l = 0; l <= i; l++)
+            ai[l + 1] += ai[l];
+
+        int ai1[] = new int[asword.length];
+        for(int i1 = 0; i1 < asword.length; i1++)
+            ai1[ai[i - asword[i1].length / BUCKET_WIDTH]++] = i1;
+
+        return ai1;
+    }
+
+    public void shutdown()
+    {
+        workers.shutdown();
+    }
+
+    private static final int BUCKET_WIDTH = 8;
+    private BTagger tagger;
+    private int nworker;
+    private int batchSize;
+    private ExecutorService workers;
+}
@@ -0,0 +1,255 @@
+package edu.upenn.cis.bpos;
+
+import java.util.Vector;
+
+// Compares the decoding engines on a gold file: for each beam setting the
+// easy-first search and the left-to-right decoder are run ROUNDS times after
+// a warm up, and the precision and the best throughput are reported. With
+// -kernel it instead times the scoring of every observation context of the
+// file against all labels, once through SFeatLib.getScore and once through
+// the SFeatMatrix kernel. With -retag it replaces one word in the middle of
+// every sentence and compares a full decode of the edited sentence with
+// decodeIncremental from the islands of the original one.
+public class BBench
+{
+
+    public BBench()
+    {
+    }
+
+    public static void main(String args[])
+    {
+        if(args.length < 4)
+        {
+            System.out.println("Usage: java -classpath $CLASSPATH edu.upenn.cis.bpos.BBench <gold file> <weights> <lables> <beam width[:margin]> ...");
+            System.out.println("       java -classpath $CLASSPATH edu.upenn.cis.bpos.BBench -kernel <gold file> <weights> <lables>");
+            System.out.println("       java -classpath $CLASSPATH edu.upenn.cis.bpos.BBench -retag <gold file> <weights> <lables> <beam width[:margin]>");
+            System.out.println("For example: java -classpath $CLASSPATH edu.upenn.cis.bpos.BBench data/sample.conll data/k3.fea data/postag.txt 1 3 3:5");
+            return;
+        }
+        if(args[0].equals("-kernel"))
+        {
+            kernel(args[1], args[2], args[3]);
+            return;
+        }
+        if(args[0].equals("-retag") && args.length == 5)
+        {
+            BLinTagLearn.setBeam(args[4]);
+            retag(args[1], args[2], args[3]);
+            return;
+        }
+        SWordLib.init();
+        SLabelLib.init();
+        SLabelLib.loadLabels(args[2]);
+        SLabelLib.initTargetWithLabel();
+        SFeatLib sfeatlib = bpos.loadModel(args[1]);
+        if(sfeatlib == null)
+            return;
+        bpos.loadGoldStandard(args[0]);
+        BLinTagLearn blintaglearn = new BLinTagLearn(bpos.proj, bpos.gold, sfeatlib);
+        long l = 0L;
+        for(int i = 0; i < bpos.gold.size(); i++)
+            l += ((BLinTagSample)bpos.gold.get(i)).words.length;
+
+        for(int j = 3; j < args.length; j++)
+        {
+            BLinTagLearn.setBeam(args[j]);
+            for(int k = 0; k < ENGINE.length; k++)
+            {
+                BLinTagLearn.leftToRight = k == 1;
+                double d = blintaglearn.tagAccuracy();
+                long l1 = 0x7fffffffffffffffL;
+                for(int i1 = 0; i1 < ROUNDS; i1++)
+                {
+                    long l2 = System.nanoTime();
+                    blintaglearn.tagAccuracy();
+                    l1 = Math.min(l1, System.nanoTime() - l2);
+                }
+
+                double d1 = (double)l1 / 1000000000D;
+                System.out.println((new StringBuilder()).append(ENGINE[k]).append(" beam ").append(args[j]).append(": precision ").append(d).append(", ").append((long)((double)bpos.gold.size() / d1)).append(" sentences/s, ").append((long)((double)l / d1)).append(" tokens/s").toString());
+            }
+
+        }
+
+        BLinTagLearn.leftToRight = false;
+    }
+
+    public static void kernel(String s, String s1, String s2)
+    {
+        SWordLib.init();
+        SLabelLib.init();
+        SLabelLib.loadLabels(s2);
+        SLabelLib.initTargetWithLabel();
+        SFeatLib sfeatlib = bpos.loadModel(s1);
+        if(sfeatlib == null)
+            return;
+        SFeatMatrix sfeatmatrix = sfeatlib.getMatrix();
+        if(sfeatmatrix == null)
+        {
+            System.out.println("No matrix for a quantized model");
+            return;
+        }
+        bpos.loadGoldStandard(s);
+        Vector vector = new Vector();
+        for(int i = 0; i < bpos.gold.size(); i++)
+        {
+            BLinTagSample blintagsample = (BLinTagSample)bpos.gold.get(i);
+            for(int k = 0; k < blintagsample.words.length; k++)
+            {
+                BObservation bobservation = blintagsample.getObservation(k);
+                String as1[] = new String[bobservation.head.length + bobservation.tail.length + bobservation.extra.length];
+                System.arraycopy(bobservation.head, 0, as1, 0, bobservation.head.length);
+                System.arraycopy(bobservation.tail, 0, as1, bobservation.head.length, bobservation.tail.length);
+                System.arraycopy(bobservation.extra, 0, as1, bobservation.head.length + bobservation.tail.length, bobservation.extra.length);
+                vector.add(as1);
+            }
+
+        }
+
+        String as[][] = new String[vector.size()][];
+        vector.copyInto(as);
+        int ai[][] = new int[as.length][];
+        for(int j = 0; j < as.length; j++)
+            ai[j] = sfeatmatrix.getRows(as[j]);
+
+        double ad[] = new double[as.length];
+        double ad1[] = new double[as.length];
+        long al[] = new long[3];
+        for(int l = 0; l < al.length; l++)
+            al[l] = 0x7fffffffffffffffL;
+
+        for(int i1 = 0; i1 <= ROUNDS; i1++)
+        {
+            long l1 = System.nanoTime();
+            for(int j1 = 0; j1 < as.length; j1++)
+                ad[j1] = scoreLookup(sfeatlib, as[j1]);
+
+            long l2 = System.nanoTime();
+            for(int k1 = 0; k1 < as.length; k1++)
+                ad1[k1] = scoreMatrix(sfeatmatrix, sfeatmatrix.getRows(as[k1]));
+
+            long l3 = System.nanoTime();
+            for(int i2 = 0; i2 < as.length; i2++)
+                ad1[i2] = scoreMatrix(sfeatmatrix, ai[i2]);
+
+            long l4 = System.nanoTime();
+            if(i1 > 0)
+            {
+                al[0] = Math.min(al[0], l2 - l1);
+                al[1] = Math.min(al[1], l3 - l2);
+                al[2] = Math.min(al[2], l4 - l3);
+            }
+        }
+
+        double d = 0.0D;
+        for(int j2 = 0; j2 < as.length; j2++)
+            d = Math.max(d, Math.abs(ad[j2] - ad1[j2]));
+
+        System.out.println((new StringBuilder()).append("Contexts: ").append(as.length).append(", labels ").append(SLabelLib.target.size()).append(", matrix ").append(sfeatmatrix.getRowSize()).append(" x ").append(sfeatmatrix.getLabelSize()).append(" (").append(sfeatmatrix.getBytes()).append(" bytes)").toString());
+        System.out.println((new StringBuilder()).append("getScore per label: ").append(al[0] / (long)as.length).append(" ns/context").toString());
+        System.out.println((new StringBuilder()).append("matrix with row lookup: ").append(al[1] / (long)as.length).append(" ns/context").toString());
+        System.out.println((new StringBuilder()).append("matrix kernel only: ").append(al[2] / (long)as.length).append(" ns/context").toString());
+        System.out.println((new StringBuilder()).append("Max difference: ").append(d).toString());
+    }
+
+    public static void retag(String s, String s1, String s2)
+    {
+        SWordLib.init();
+        SLabelLib.init();
+        BTagger btagger = BTagger.load(s1, s2);
+        if(btagger == null)
+            return;
+        bpos.loadGoldStandard(s);
+        String as[][] = new String[bpos.gold.size()][];
+        String as1[][] = new String[as.length][];
+        for(int i = 0; i < as.length; i++)
+        {
+            SWord asword[] = ((BLinTagSample)bpos.gold.get(i)).words;
+            as[i] = new String[asword.length];
+            for(int k = 0; k < asword.length; k++)
+                as[i][k] = asword[k].word;
+
+            as1[i] = as[i].clone();
+            if(as1[i].length > 0)
+                as1[i][as1[i].length / 2] = EDIT;
+        }
+
+        BLinTagSample ablintagsample[] = new BLinTagSample[as.length];
+        for(int j = 0; j < as.length; j++)
+            ablintagsample[j] = btagger.retag(null, as[j]);
+
+        long l = 0x7fffffffffffffffL;
+        long l1 = 0x7fffffffffffffffL;
+        int i1 = 0;
+        int j1 = 0;
+        for(int k1 = 0; k1 <= ROUNDS; k1++)
+        {
+            long l2 = System.nanoTime();
+            BLinTagSample ablintagsample1[] = new BLinTagSample[as.length];
+            for(int i2 = 0; i2 < as.length; i2++)
+                ablintagsample1[i2] = btagger.retag(null, as1[i2]);
+
+            long l3 = System.nanoTime();
+            BLinTagSample ablintagsample2[] = new BLinTagSample[as.length];
+            for(int j2 = 0; j2 < as.length; j2++)
+                ablintagsample2[j2] = btagger.retag(ablintagsample[j2], as1[j2]);
+
+            long l4 = System.nanoTime();
+            if(k1 == 0)
+            {
+                for(int k2 = 0; k2 < as.length; k2++)
+                {
+                    for(int i3 = 0; i3 < as1[k2].length; i3++)
+                        if(ablintagsample1[k2].tags[i3] == ablintagsample2[k2].tags[i3])
+                            i1++;
+
+                    j1 += as1[k2].length;
+                }
+
+            } else
+            {
+                l = Math.min(l, l3 - l2);
+                l1 = Math.min(l1, l4 - l3);
+            }
+        }
+
+        System.out.println((new StringBuilder()).append("Sentences: ").append(as.length).append(", tokens ").append(j1).toString());
+        System.out.println((new StringBuilder()).append("full decode: ").append(l / 1000L / (long)Math.max(1, as.length)).append(" us/sentence").toString());
+        System.out.println((new StringBuilder()).append("incremental: ").append(l1 / 1000L / (long)Math.max(1, as.length)).append(" us/sentence").toString());
+        System.out.println((new StringBuilder()).append("Same tags: ").append(i1).append("/").append(j1).toString());
+    }
+
+    private static double scoreLookup(SFeatLib sfeatlib, String as[])
+    {
+        double d = 0.0D;
+        for(int i = 0; i < SLabelLib.target.size(); i++)
+        {
+            SLabel slabel = (SLabel)SLabelLib.target.get(i);
+            Vector vector = new Vector(as.length);
+            for(int j = 0; j < as.length; j++)
+                vector.add((new StringBuilder()).append(slabel.lbl).append(as[j]).toString());
+
+            d += sfeatlib.getScore(vector);
+        }
+
+        return d;
+    }
+
+    private static double scoreMatrix(SFeatMatrix sfeatmatrix, int ai[])
+    {
+        double ad[] = new double[sfeatmatrix.getLabelSize()];
+        sfeatmatrix.score(ai, ad);
+        double d = 0.0D;
+        for(int i = 0; i < SLabelLib.target.size(); i++)
+            d += ad[((SLabel)SLabelLib.target.get(i)).id];
+
+        return d;
+    }
+
+    private static final String ENGINE[] = {
+        "easy-first", "left-to-right"
+    };
+    private static final int ROUNDS = 3;
+    private static final String EDIT = "house";
+}
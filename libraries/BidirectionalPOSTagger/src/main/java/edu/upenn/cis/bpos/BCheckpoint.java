@@ -0,0 +1,214 @@
+package edu.upenn.cis.bpos;
+
+import java.io.*;
+import java.util.Vector;
+
+// Binary training checkpoint: the raw and cumulative weight of every
+// feature, the perceptron step counter and the position in the training
+// data from which BLinTagLearn.train resumes.
+public class BCheckpoint
+{
+
+    public BCheckpoint(SFeatLib sfeatlib, Vector vector, int i, int j, int k)
+    {
+        feat = sfeatlib;
+        labels = vector;
+        inner = i;
+        round = j;
+        sentence = k;
+    }
+
+    public void save(String s)
+    {
+        File file = new File((new StringBuilder()).append(s).append(".tmp").toString());
+        try
+        {
+            DataOutputStream dataoutputstream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+            dataoutputstream.writeInt(MAGIC);
+            dataoutputstream.writeInt(VERSION);
+            dataoutputstream.writeInt(inner);
+            dataoutputstream.writeInt(round);
+            dataoutputstream.writeInt(sentence);
+            dataoutputstream.writeInt(labels.size());
+            for(int i = 0; i < labels.size(); i++)
+                dataoutputstream.writeUTF((new StringBuilder()).append("").append(labels.get(i)).toString());
+
+            dataoutputstream.writeInt(feat.id2feat.size());
+            for(int j = 0; j < feat.id2feat.size(); j++)
+            {
+                SFeat sfeat = (SFeat)feat.id2feat.get(j);
+                dataoutputstream.writeUTF(sfeat.featstr);
+                dataoutputstream.writeDouble(sfeat.weight);
+                dataoutputstream.writeDouble(sfeat.cmlwt);
+                dataoutputstream.writeInt(sfeat.update);
+                dataoutputstream.writeInt(sfeat.freq);
+            }
+
+            dataoutputstream.close();
+            File file1 = new File(s);
+            file1.delete();
+            if(!file.renameTo(file1))
+                System.err.println((new StringBuilder()).append("Cannot rename ").append(file).append(" to ").append(s).toString());
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+        }
+    }
+
+    public static BCheckpoint load(String s)
+    {
+        BCheckpoint bcheckpoint = null;
+        try
+        {
+            DataInputStream datainputstream = new DataInputStream(new BufferedInputStream(new FileInputStream(s), BUFFER_SIZE));
+            System.err.println((new StringBuilder()).append("Open Checkpoint : ").append(s).toString());
+            if(datainputstream.readInt() != MAGIC || datainputstream.readInt() != VERSION)
+            {
+                datainputstream.close();
+                System.err.println((new StringBuilder()).append("Not a checkpoint : ").append(s).toString());
+                return null;
+            }
+            int i = datainputstream.readInt();
+            int j = datainputstream.readInt();
+            int k = datainputstream.readInt();
+            Vector vector = new Vector();
+            int l = datainputstream.readInt();
+            for(int i1 = 0; i1 < l; i1++)
+                vector.add(datainputstream.readUTF());
+
+            SFeatLib sfeatlib = new SFeatLib();
+            int j1 = datainputstream.readInt();
+            for(int k1 = 0; k1 < j1; k1++)
+            {
+                SFeat sfeat = (SFeat)sfeatlib.id2feat.get(sfeatlib.regFeat(datainputstream.readUTF()));
+                sfeat.weight = datainputstream.readDouble();
+                sfeat.cmlwt = datainputstream.readDouble();
+                sfeat.update = datainputstream.readInt();
+                sfeat.freq = datainputstream.readInt();
+            }
+
+            datainputstream.close();
+            bcheckpoint = new BCheckpoint(sfeatlib, vector, i, j, k);
+            System.err.println((new StringBuilder()).append("").append(j1).append(" features loaded, round ").append(j).append(", sentence ").append(k).append(", step ").append(i).toString());
+        }
+        catch(FileNotFoundException filenotfoundexception)
+        {
+            System.err.println(filenotfoundexception.toString());
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+        }
+        return bcheckpoint;
+    }
+
+    // Writes checkpoints and weight files on a background thread, so
+    // training can go on while the files are written. The caller hands over
+    // a snapshot. There is one slot for a snapshot waiting to be written: a
+    // periodic checkpoint still waiting there is replaced by the next
+    // snapshot, and submit() waits while the slot holds the weights of a
+    // round, so at most one snapshot is ever queued.
+    public static class Writer
+        implements Runnable
+    {
+
+        public Writer()
+        {
+            thread = new Thread(this, "bpos-checkpoint");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        // Writes the checkpoint to s and, unless s1 is null, the weights to
+        // s1; either file may be null.
+        public synchronized void submit(BCheckpoint bcheckpoint, String s, String s1)
+        {
+            try
+            {
+                while(pending != null && pendingWeights != null)
+                    wait();
+            }
+            catch(InterruptedException interruptedexception)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            pending = bcheckpoint;
+            pendingFile = s;
+            pendingWeights = s1;
+            notifyAll();
+        }
+
+        public void run()
+        {
+            do
+            {
+                BCheckpoint bcheckpoint;
+                String s;
+                String s1;
+                synchronized(this)
+                {
+                    try
+                    {
+                        while(pending == null && !closed)
+                            wait();
+                    }
+                    catch(InterruptedException interruptedexception)
+                    {
+                        return;
+                    }
+                    if(pending == null)
+                        return;
+                    bcheckpoint = pending;
+                    s = pendingFile;
+                    s1 = pendingWeights;
+                    pending = null;
+                    notifyAll();
+                }
+                if(s != null)
+                    bcheckpoint.save(s);
+                if(s1 != null)
+                    bcheckpoint.feat.saveWeight(s1, bcheckpoint.inner, BLinTagLearn.pruneFreq, BLinTagLearn.pruneWeight);
+            } while(true);
+        }
+
+        public void close()
+        {
+            synchronized(this)
+            {
+                closed = true;
+                notifyAll();
+            }
+            try
+            {
+                do
+                {
+                    thread.join(60000L);
+                    if(!thread.isAlive())
+                        break;
+                    System.err.println("Waiting for checkpoint writer");
+                } while(true);
+            }
+            catch(InterruptedException interruptedexception)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private Thread thread;
+        private BCheckpoint pending;
+        private String pendingFile;
+        private String pendingWeights;
+        private boolean closed;
+    }
+
+    private static final int MAGIC = 0x42434b50;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 0x100000;
+    public SFeatLib feat;
+    public Vector labels;
+    public int inner;
+    public int round;
+    public int sentence;
+}
@@ -0,0 +1,328 @@
+package edu.upenn.cis.bpos;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.Hashtable;
+import java.util.Vector;
+
+// Binary, int encoded copy of a CoNLL tagged training file. The sentences
+// keep their word and tag ids together with the ids of the observation
+// features of every token, and are read back through a memory mapped window
+// one sentence at a time, so that the corpus never has to fit on the heap.
+public class BCorpusCache extends AbstractList
+{
+
+    public BCorpusCache()
+    {
+    }
+
+    public static void main(String args[])
+    {
+        if(args.length != 2)
+        {
+            System.out.println("Usage: java -classpath $CLASSPATH edu.upenn.cis.bpos.BCorpusCache <tagged file> <cache file>");
+            System.out.println("For example: java -classpath $CLASSPATH edu.upenn.cis.bpos.BCorpusCache data/train.conll data/train.bin");
+            return;
+        } else
+        {
+            SWordLib.init();
+            SLabelLib.init();
+            compile(args[0], args[1]);
+            return;
+        }
+    }
+
+    public static void compile(String s, String s1)
+    {
+        Hashtable hashtable = new Hashtable(WORD_HASH_INIT);
+        Vector vector = new Vector();
+        Hashtable hashtable1 = new Hashtable();
+        Vector vector1 = new Vector();
+        Hashtable hashtable2 = new Hashtable(WORD_HASH_INIT);
+        Vector vector2 = new Vector();
+        Vector vector3 = new Vector();
+        long l = 32L;
+        try
+        {
+            BufferedReader bufferedreader = new BufferedReader(new FileReader(s));
+            DataOutputStream dataoutputstream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(s1), BUFFER_SIZE));
+            System.err.println((new StringBuilder()).append("Open Tagged File : ").append(s).toString());
+            dataoutputstream.writeInt(MAGIC);
+            dataoutputstream.writeInt(VERSION);
+            dataoutputstream.writeInt(0);
+            dataoutputstream.writeInt(0);
+            dataoutputstream.writeLong(0L);
+            dataoutputstream.writeLong(0L);
+            Vector vector4 = new Vector();
+            Vector vector5 = new Vector();
+            for(String s2 = bufferedreader.readLine(); s2 != null; s2 = bufferedreader.readLine())
+            {
+                s2 = s2.trim();
+                if(s2.equals(""))
+                {
+                    l = compileSentence(dataoutputstream, l, vector4, vector5, hashtable, vector, hashtable1, vector1, hashtable2, vector2, vector3);
+                } else
+                {
+                    String as[] = s2.split("\\s+");
+                    vector4.add(as[0]);
+                    vector5.add(as[1]);
+                }
+            }
+
+            l = compileSentence(dataoutputstream, l, vector4, vector5, hashtable, vector, hashtable1, vector1, hashtable2, vector2, vector3);
+            bufferedreader.close();
+            long l1 = l;
+            writeTable(dataoutputstream, vector);
+            writeTable(dataoutputstream, vector1);
+            writeTable(dataoutputstream, vector2);
+            dataoutputstream.close();
+            long l2 = (new File(s1)).length();
+            DataOutputStream dataoutputstream1 = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(s1, true), BUFFER_SIZE));
+            for(int i = 0; i < vector3.size(); i++)
+                dataoutputstream1.writeLong(((Long)vector3.get(i)).longValue());
+
+            dataoutputstream1.close();
+            RandomAccessFile randomaccessfile = new RandomAccessFile(s1, "rw");
+            randomaccessfile.seek(8L);
+            randomaccessfile.writeInt(vector3.size());
+            randomaccessfile.writeInt(0);
+            randomaccessfile.writeLong(l1);
+            randomaccessfile.writeLong(l2);
+            randomaccessfile.close();
+        }
+        catch(FileNotFoundException filenotfoundexception)
+        {
+            System.err.println(filenotfoundexception.toString());
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+        }
+        System.err.println((new StringBuilder()).append("").append(vector3.size()).append(" samples compiled").toString());
+        System.err.println((new StringBuilder()).append("").append(vector.size()).append(" words compiled").toString());
+        System.err.println((new StringBuilder()).append("").append(vector1.size()).append(" labels compiled").toString());
+        System.err.println((new StringBuilder()).append("").append(vector2.size()).append(" observations compiled").toString());
+    }
+
+    private static long compileSentence(DataOutputStream dataoutputstream, long l, Vector vector, Vector vector1, Hashtable hashtable, Vector vector2, Hashtable hashtable1, Vector vector3, Hashtable hashtable2, Vector vector4, Vector vector5)
+        throws IOException
+    {
+        if(vector.size() == 0)
+            return l;
+        BLinTagSample blintagsample = new BLinTagSample(vector, vector1);
+        vector5.add(new Long(l));
+        l += writeSentence(dataoutputstream, blintagsample, hashtable, vector2, hashtable1, vector3, hashtable2, vector4);
+        vector.clear();
+        vector1.clear();
+        if(vector5.size() % 10000 == 0)
+            System.err.println((new StringBuilder()).append("").append(vector5.size()).append(" samples compiled").toString());
+        return l;
+    }
+
+    private static long writeSentence(DataOutputStream dataoutputstream, BLinTagSample blintagsample, Hashtable hashtable, Vector vector, Hashtable hashtable1, Vector vector1, Hashtable hashtable2, Vector vector2)
+        throws IOException
+    {
+        int i = blintagsample.words.length;
+        long l = 4L;
+        dataoutputstream.writeInt(i);
+        for(int j = 0; j < i; j++)
+            dataoutputstream.writeInt(getID(blintagsample.words[j].word, hashtable, vector));
+
+        for(int k = 0; k < i; k++)
+            dataoutputstream.writeInt(getID(blintagsample.tags[k].lbl, hashtable1, vector1));
+
+        l += 8L * (long)i;
+        for(int i1 = 0; i1 < i; i1++)
+        {
+            BObservation bobservation = BObservation.extract(blintagsample, i1);
+            dataoutputstream.writeInt(bobservation.head.length);
+            dataoutputstream.writeInt(bobservation.tail.length);
+            for(int j1 = 0; j1 < bobservation.head.length; j1++)
+                dataoutputstream.writeInt(getID(bobservation.head[j1], hashtable2, vector2));
+
+            for(int k1 = 0; k1 < bobservation.tail.length; k1++)
+                dataoutputstream.writeInt(getID(bobservation.tail[k1], hashtable2, vector2));
+
+            for(int l1 = 0; l1 < bobservation.extra.length; l1++)
+                dataoutputstream.writeInt(getID(bobservation.extra[l1], hashtable2, vector2));
+
+            l += 4L * (long)(2 + bobservation.head.length + bobservation.tail.length + bobservation.extra.length);
+        }
+
+        return l;
+    }
+
+    private static int getID(String s, Hashtable hashtable, Vector vector)
+    {
+        Integer integer = (Integer)hashtable.get(s);
+        if(integer != null)
+        {
+            return integer.intValue();
+        } else
+        {
+            Integer integer1 = new Integer(vector.size());
+            hashtable.put(s, integer1);
+            vector.add(s);
+            return integer1.intValue();
+        }
+    }
+
+    private static void writeTable(DataOutputStream dataoutputstream, Vector vector)
+        throws IOException
+    {
+        dataoutputstream.writeInt(vector.size());
+        for(int i = 0; i < vector.size(); i++)
+            dataoutputstream.writeUTF((String)vector.get(i));
+
+    }
+
+    public static BCorpusCache open(String s)
+    {
+        BCorpusCache bcorpuscache = new BCorpusCache();
+        try
+        {
+            System.err.println((new StringBuilder()).append("Open Corpus Cache : ").append(s).toString());
+            bcorpuscache.load(s);
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+            return null;
+        }
+        System.err.println((new StringBuilder()).append("").append(bcorpuscache.size()).append(" samples mapped").toString());
+        System.err.println((new StringBuilder()).append("").append(SWordLib.getSize()).append(" words loaded").toString());
+        System.err.println((new StringBuilder()).append("").append(SLabelLib.getSize()).append(" labels loaded").toString());
+        return bcorpuscache;
+    }
+
+    private void load(String s)
+        throws IOException
+    {
+        FileInputStream fileinputstream = new FileInputStream(s);
+        DataInputStream datainputstream = new DataInputStream(new BufferedInputStream(fileinputstream, BUFFER_SIZE));
+        if(datainputstream.readInt() != MAGIC || datainputstream.readInt() != VERSION)
+        {
+            datainputstream.close();
+            throw new IOException((new StringBuilder()).append("Not a corpus cache : ").append(s).toString());
+        }
+        int i = datainputstream.readInt();
+        datainputstream.readInt();
+        long l = datainputstream.readLong();
+        long l1 = datainputstream.readLong();
+        datainputstream.close();
+        fileinputstream = new FileInputStream(s);
+        fileinputstream.getChannel().position(l);
+        datainputstream = new DataInputStream(new BufferedInputStream(fileinputstream, BUFFER_SIZE));
+        int j = datainputstream.readInt();
+        words = new SWord[j];
+        for(int k = 0; k < j; k++)
+            words[k] = SWordLib.getSWord(datainputstream.readUTF());
+
+        j = datainputstream.readInt();
+        labels = new SLabel[j];
+        for(int i1 = 0; i1 < j; i1++)
+            labels[i1] = SLabelLib.getSLabel(datainputstream.readUTF());
+
+        j = datainputstream.readInt();
+        observations = new String[j];
+        for(int j1 = 0; j1 < j; j1++)
+            observations[j1] = datainputstream.readUTF().intern();
+
+        datainputstream.close();
+        fileinputstream = new FileInputStream(s);
+        fileinputstream.getChannel().position(l1);
+        datainputstream = new DataInputStream(new BufferedInputStream(fileinputstream, BUFFER_SIZE));
+        offsets = new long[i + 1];
+        for(int k1 = 0; k1 < i; k1++)
+            offsets[k1] = datainputstream.readLong();
+
+        offsets[i] = l;
+        datainputstream.close();
+        channel = (new RandomAccessFile(s, "r")).getChannel();
+        window = null;
+        windowStart = 0L;
+    }
+
+    public int size()
+    {
+        return offsets.length - 1;
+    }
+
+    public synchronized Object get(int i)
+    {
+        long l = offsets[i];
+        long l1 = offsets[i + 1];
+        try
+        {
+            if(window == null || l < windowStart || l1 > windowStart + (long)window.capacity())
+            {
+                long l2 = Math.max(l1 - l, WINDOW_SIZE);
+                l2 = Math.min(l2, channel.size() - l);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, l, l2);
+                windowStart = l;
+            }
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+            return null;
+        }
+        window.position((int)(l - windowStart));
+        int j = window.getInt();
+        SWord asword[] = new SWord[j];
+        for(int k = 0; k < j; k++)
+            asword[k] = words[window.getInt()];
+
+        BLinTagSample blintagsample = new BLinTagSample(asword);
+        for(int i1 = 0; i1 < j; i1++)
+            blintagsample.tags[i1] = labels[window.getInt()];
+
+        blintagsample.obs = new BObservation[j];
+        for(int j1 = 0; j1 < j; j1++)
+        {
+            String as[] = new String[window.getInt()];
+            String as1[] = new String[window.getInt()];
+            String as2[] = new String[2];
+            for(int k1 = 0; k1 < as.length; k1++)
+                as[k1] = observations[window.getInt()];
+
+            for(int i2 = 0; i2 < as1.length; i2++)
+                as1[i2] = observations[window.getInt()];
+
+            for(int j2 = 0; j2 < as2.length; j2++)
+                as2[j2] = observations[window.getInt()];
+
+            blintagsample.obs[j1] = new BObservation(as[0], as, as1, as2);
+        }
+
+        return blintagsample;
+    }
+
+    public void close()
+    {
+        try
+        {
+            window = null;
+            channel.close();
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+        }
+    }
+
+    private static final int MAGIC = 0x42504f53;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 0x100000;
+    private static final long WINDOW_SIZE = 0x10000000L;
+    private static int WORD_HASH_INIT = 0x186a0;
+    private SWord words[];
+    private SLabel labels[];
+    private String observations[];
+    private long offsets[];
+    private FileChannel channel;
+    private MappedByteBuffer window;
+    private long windowStart;
+}
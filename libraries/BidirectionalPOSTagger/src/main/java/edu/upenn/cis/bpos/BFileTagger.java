@@ -0,0 +1,222 @@
+package edu.upenn.cis.bpos;
+
+import java.io.*;
+import java.util.Vector;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+// Tags many files with one loaded model. The arguments are files or
+// directories; directories are searched recursively for the files whose
+// name matches the -glob pattern ("*" and "?" wildcards). Each file is
+// tagged by one worker as bpos would tag it, and written to <file>.pos next
+// to the input or, with -out, to the same relative path under that
+// directory. Files ending in .pos and the -out directory are never
+// collected, so a second run does not tag the output of the first. Progress
+// is reported on stderr every few seconds.
+public class BFileTagger
+{
+
+    public BFileTagger(BTagger btagger, int i)
+    {
+        tagger = btagger;
+        nworker = i;
+        files = new AtomicLong();
+        sentences = new AtomicLong();
+        failed = new AtomicLong();
+    }
+
+    public static void main(String args[])
+    {
+        String s = null;
+        String s1 = "*";
+        int i;
+        for(i = 0; i < args.length - 1; i += 2)
+        {
+            if(args[i].equals("-out"))
+            {
+                s = args[i + 1];
+                continue;
+            }
+            if(!args[i].equals("-glob"))
+                break;
+            s1 = args[i + 1];
+        }
+
+        if(args.length - i < 5)
+        {
+            System.out.println("Usage: java -classpath $CLASSPATH edu.upenn.cis.bpos.BFileTagger [-out <output dir>] [-glob <pattern>] <beam width[:margin]> <weights> <lables> <threads> <file|dir> ...");
+            System.out.println("For example: java -classpath $CLASSPATH edu.upenn.cis.bpos.BFileTagger -out tagged -glob \"*.raw\" 1 data/k3.fea data/postag.txt 4 corpus");
+            return;
+        }
+        SWordLib.init();
+        SLabelLib.init();
+        BLinTagLearn.setBeam(args[i]);
+        BTagger btagger = BTagger.load(args[i + 1], args[i + 2]);
+        if(btagger == null)
+            return;
+        BFileTagger bfiletagger = new BFileTagger(btagger, Integer.parseInt(args[i + 3]));
+        Pattern pattern = globPattern(s1);
+        File file1 = s != null ? canonical(new File(s)) : null;
+        Vector vector = new Vector();
+        Vector vector1 = new Vector();
+        for(int j = i + 4; j < args.length; j++)
+        {
+            File file = new File(args[j]);
+            if(file.isDirectory())
+                collect(file, "", pattern, file1, vector, vector1);
+            else
+            {
+                vector.add(file);
+                vector1.add(file.getName());
+            }
+        }
+
+        bfiletagger.tagFiles(vector, vector1, s != null ? new File(s) : null);
+    }
+
+    static Pattern globPattern(String s)
+    {
+        StringBuilder stringbuilder = new StringBuilder();
+        for(int i = 0; i < s.length(); i++)
+        {
+            char c = s.charAt(i);
+            if(c == '*')
+                stringbuilder.append(".*");
+            else
+            if(c == '?')
+                stringbuilder.append(".");
+            else
+                stringbuilder.append(Pattern.quote(String.valueOf(c)));
+        }
+
+        return Pattern.compile(stringbuilder.toString());
+    }
+
+    // Adds the matching files under the directory, leaving out the output
+    // directory file1 and the files written by an earlier run.
+    static void collect(File file, String s, Pattern pattern, File file1, Vector vector, Vector vector1)
+    {
+        File afile[] = file.listFiles();
+        if(afile == null)
+            return;
+        for(int i = 0; i < afile.length; i++)
+        {
+            String s1 = (new StringBuilder()).append(s).append(afile[i].getName()).toString();
+            if(afile[i].isDirectory())
+            {
+                if(file1 == null || !file1.equals(canonical(afile[i])))
+                    collect(afile[i], (new StringBuilder()).append(s1).append(File.separator).toString(), pattern, file1, vector, vector1);
+            } else
+            if(!afile[i].getName().endsWith(SUFFIX) && pattern.matcher(afile[i].getName()).matches())
+            {
+                vector.add(afile[i]);
+                vector1.add(s1);
+            }
+        }
+
+    }
+
+    private static File canonical(File file)
+    {
+        try
+        {
+            return file.getCanonicalFile();
+        }
+        catch(IOException ioexception)
+        {
+            return file.getAbsoluteFile();
+        }
+    }
+
+    public void tagFiles(Vector vector, Vector vector1, File file)
+    {
+        final long total = vector.size();
+        final long start = System.currentTimeMillis();
+        ExecutorService executorservice = Executors.newFixedThreadPool(nworker, BThreads.daemonThreads("bpos-worker"));
+        for(int i = 0; i < vector.size(); i++)
+        {
+            final File input = (File)vector.get(i);
+            final File output = file != null ? new File(file, (new StringBuilder()).append((String)vector1.get(i)).append(SUFFIX).toString()) : new File((new StringBuilder()).append(input.getPath()).append(SUFFIX).toString());
+            executorservice.execute(new Runnable() {
+
+                public void run()
+                {
+                    try
+                    {
+                        sentences.addAndGet(tagFile(input, output));
+                    }
+                    catch(IOException ioexception)
+                    {
+                        failed.incrementAndGet();
+                        System.err.println((new StringBuilder()).append(input).append(" : ").append(ioexception.toString()).toString());
+                    }
+                    catch(RuntimeException runtimeexception)
+                    {
+                        failed.incrementAndGet();
+                        System.err.println((new StringBuilder()).append(input).append(" : ").append(runtimeexception.toString()).toString());
+                    }
+                    files.incrementAndGet();
+                }
+
+            });
+        }
+
+        executorservice.shutdown();
+        try
+        {
+            while(!executorservice.awaitTermination(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS))
+                report(total, start);
+        }
+        catch(InterruptedException interruptedexception)
+        {
+            executorservice.shutdownNow();
+        }
+        report(total, start);
+        if(failed.get() > 0L)
+            System.err.println((new StringBuilder()).append("").append(failed.get()).append(" files failed").toString());
+    }
+
+    private void report(long l, long l1)
+    {
+        long l2 = System.currentTimeMillis() - l1;
+        double d = l2 != 0L ? (double)l2 / 1000D : 0.001D;
+        System.err.println((new StringBuilder()).append("Files ").append(files.get()).append("/").append(l).append(", ").append(sentences.get()).append(" sentences, ").append((long)((double)files.get() / d)).append(" files/s, ").append((long)((double)sentences.get() / d)).append(" sentences/s").toString());
+    }
+
+    public long tagFile(File file, File file1)
+        throws IOException
+    {
+        File file2 = file1.getParentFile();
+        if(file2 != null)
+            file2.mkdirs();
+        BufferedReader bufferedreader = new BufferedReader(new FileReader(file));
+        BufferedWriter bufferedwriter = new BufferedWriter(new FileWriter(file1));
+        String s = System.getProperty("line.separator");
+        long l = 0L;
+        try
+        {
+            for(String s1 = bufferedreader.readLine(); s1 != null; s1 = bufferedreader.readLine())
+            {
+                bufferedwriter.write(BTagger.format(tagger.tag(BTagger.split(s1))));
+                bufferedwriter.write(s);
+                l++;
+            }
+
+        }
+        finally
+        {
+            bufferedreader.close();
+            bufferedwriter.close();
+        }
+        return l;
+    }
+
+    private static final String SUFFIX = ".pos";
+    private static final long PROGRESS_INTERVAL = 5000L;
+    private BTagger tagger;
+    private int nworker;
+    private AtomicLong files;
+    private AtomicLong sentences;
+    private AtomicLong failed;
+}
@@ -0,0 +1,102 @@
+package edu.upenn.cis.bpos;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load generator for BHttpServer. Each client thread posts the sentences of
+// a tokenized file one request at a time, cycling through the file, until
+// the given number of requests has been sent by all threads together.
+public class BHttpLoad
+{
+
+    public BHttpLoad()
+    {
+    }
+
+    public static void main(String args[])
+        throws Exception
+    {
+        if(args.length != 4)
+        {
+            System.out.println("Usage: java -classpath $CLASSPATH edu.upenn.cis.bpos.BHttpLoad <url> <tokenized file> <threads> <requests>");
+            System.out.println("For example: java -classpath $CLASSPATH edu.upenn.cis.bpos.BHttpLoad http://127.0.0.1:8080/tag data/sample.raw 32 100000");
+            return;
+        }
+        final URL url = new URL(args[0]);
+        final Vector vector = new Vector();
+        BufferedReader bufferedreader = new BufferedReader(new InputStreamReader(new FileInputStream(args[1]), "UTF-8"));
+        for(String s = bufferedreader.readLine(); s != null; s = bufferedreader.readLine())
+            if(s.trim().length() > 0)
+                vector.add(s.getBytes("UTF-8"));
+
+        bufferedreader.close();
+        int i = Integer.parseInt(args[2]);
+        final long total = Long.parseLong(args[3]);
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong ok = new AtomicLong();
+        final AtomicLong busy = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        Thread athread[] = new Thread[i];
+        long l = System.currentTimeMillis();
+        for(int j = 0; j < i; j++)
+        {
+            athread[j] = new Thread(new Runnable() {
+
+                public void run()
+                {
+                    long l1;
+                    while((l1 = sent.getAndIncrement()) < total)
+                        try
+                        {
+                            int k = post(url, (byte[])vector.get((int)(l1 % (long)vector.size())));
+                            if(k == 200)
+                                ok.incrementAndGet();
+                            else
+                            if(k == 503)
+                                busy.incrementAndGet();
+                            else
+                                failed.incrementAndGet();
+                        }
+                        catch(IOException ioexception)
+                        {
+                            failed.incrementAndGet();
+                        }
+                }
+
+            });
+            athread[j].start();
+        }
+
+        for(int k = 0; k < i; k++)
+            athread[k].join();
+
+        long l2 = System.currentTimeMillis() - l;
+        System.out.println((new StringBuilder()).append("Requests: ").append(total).append(", ok ").append(ok.get()).append(", 503 ").append(busy.get()).append(", failed ").append(failed.get()).toString());
+        System.out.println((new StringBuilder()).append("Time: ").append(l2).append(" ms").toString());
+        System.out.println((new StringBuilder()).append("Sentences per second: ").append(l2 != 0L ? ((double)ok.get() * 1000D) / (double)l2 : 0.0D).toString());
+    }
+
+    private static int post(URL url, byte abyte0[])
+        throws IOException
+    {
+        HttpURLConnection httpurlconnection = (HttpURLConnection)url.openConnection();
+        httpurlconnection.setRequestMethod("POST");
+        httpurlconnection.setDoOutput(true);
+        httpurlconnection.setFixedLengthStreamingMode(abyte0.length);
+        OutputStream outputstream = httpurlconnection.getOutputStream();
+        outputstream.write(abyte0);
+        outputstream.close();
+        int i = httpurlconnection.getResponseCode();
+        InputStream inputstream = i >= 400 ? httpurlconnection.getErrorStream() : httpurlconnection.getInputStream();
+        if(inputstream != null)
+        {
+            byte abyte1[] = new byte[4096];
+            while(inputstream.read(abyte1) > 0) ;
+            inputstream.close();
+        }
+        return i;
+    }
+}
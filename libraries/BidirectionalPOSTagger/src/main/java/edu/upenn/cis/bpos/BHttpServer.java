@@ -0,0 +1,522 @@
+package edu.upenn.cis.bpos;
+
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Vector;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Embedded HTTP front end of BTagger.
+//
+//     POST /tag      one tokenized sentence per line, answered by one
+//                    tagged sentence per line; /tag?model=<name> uses
+//                    one of the models of the -models list
+//     GET  /health   "OK"
+//     GET  /metrics  counters, one "name value" per line
+//     GET  /models   the loaded models and their estimated memory
+//     POST /reload   "<weights>\n<lables>[\n<model>]": load, smoke test and
+//                    swap in a new model; requests received before the
+//                    swap finish on the old one. Only with -reload <model
+//                    dir>, for files inside that directory
+//
+// The server listens on the loopback interface unless -bind names another
+// address.
+//
+// Requests are queued and a batcher collects them into batches of up to
+// maxBatch sentences, waiting at most maxWait ms for a batch to fill. Each
+// batch is tagged by one worker. The queue holds at most <queue size>
+// sentences: a request that does not fit is refused with 503 instead of
+// waiting, and a body over MAX_BODY bytes or with more sentences than the
+// queue holds is refused with 413. A request that is not tagged within
+// TIMEOUT ms, or whose sentences failed to decode, is answered with 500.
+// With -virtual every exchange is handled on a virtual thread, so a waiting
+// request costs little more than its queue entry. With -cache <entries>
+// tagged sentences are kept in a BResultCache; a request whose sentences
+// are all cached is answered at once without going through the queue. With
+// -split <max words> longer sentences are decoded in parallel segments (see
+// BLinTagLearn), and with -matrix contexts are scored against all labels at
+// once (see BScoreTable).
+// The vocabulary, with the observations cached on its words, is capped at
+// SWordLib.SERVER_WORDS words; later new words are tagged but not kept.
+public class BHttpServer
+{
+
+    public BHttpServer(BModelRegistry bmodelregistry, int i, int j, int k, int l, ThreadFactory threadfactory)
+    {
+        models = bmodelregistry;
+        connections = threadfactory;
+        maxBatch = i;
+        maxWait = j;
+        queue = new LinkedBlockingQueue();
+        room = new Semaphore(k);
+        capacity = k;
+        permits = new Semaphore(2 * l);
+        workers = Executors.newFixedThreadPool(l, BThreads.daemonThreads("bpos-batch"));
+        requests = new AtomicLong();
+        sentences = new AtomicLong();
+        rejected = new AtomicLong();
+        batches = new AtomicLong();
+        batched = new AtomicLong();
+        latency = new AtomicLong();
+    }
+
+    public static void main(String args[])
+    {
+        boolean flag = false;
+        String s = null;
+        String s1 = null;
+        String s2 = "127.0.0.1";
+        int i1 = 0;
+        int l;
+        for(l = 0; l < args.length; l++)
+        {
+            if(args[l].equals("-virtual"))
+            {
+                flag = true;
+                continue;
+            }
+            if(args[l].equals("-matrix"))
+            {
+                BLinTagLearn.useMatrix = true;
+                continue;
+            }
+            if(l + 1 >= args.length)
+                break;
+            if(args[l].equals("-models"))
+            {
+                s = args[++l];
+                continue;
+            }
+            if(args[l].equals("-split"))
+            {
+                BLinTagLearn.maxLength = Integer.parseInt(args[++l]);
+                continue;
+            }
+            if(args[l].equals("-reload"))
+            {
+                s1 = args[++l];
+                continue;
+            }
+            if(args[l].equals("-bind"))
+            {
+                s2 = args[++l];
+                continue;
+            }
+            if(!args[l].equals("-cache"))
+                break;
+            i1 = Integer.parseInt(args[++l]);
+        }
+
+        if(args.length - l != 4 && args.length - l != 7)
+        {
+            System.out.println("Usage: java -classpath $CLASSPATH edu.upenn.cis.bpos.BHttpServer [-virtual] [-matrix] [-models <model list>] [-cache <entries>] [-split <max words>] [-reload <model dir>] [-bind <address>] <beam width[:margin]> <weights> <lables> <port> [<max batch> <max wait ms> <queue size>]");
+            System.out.println("For example: java -classpath $CLASSPATH edu.upenn.cis.bpos.BHttpServer 1 data/k3.fea data/postag.txt 8080 64 2 4096");
+            return;
+        }
+        SWordLib.init();
+        SWordLib.maxWords = SWordLib.SERVER_WORDS;
+        SLabelLib.init();
+        BLinTagLearn.setBeam(args[l]);
+        BModelRegistry bmodelregistry = BModelRegistry.open(s, args[l + 1], args[l + 2]);
+        if(bmodelregistry == null)
+            return;
+        System.err.print(bmodelregistry.report());
+        int i = 64;
+        int j = 2;
+        int k = 4096;
+        if(args.length - l == 7)
+        {
+            i = Integer.parseInt(args[l + 4]);
+            j = Integer.parseInt(args[l + 5]);
+            k = Integer.parseInt(args[l + 6]);
+        }
+        BHttpServer bhttpserver = new BHttpServer(bmodelregistry, i, j, k, Runtime.getRuntime().availableProcessors(), flag ? BThreads.virtualThreads("bpos-http") : BThreads.daemonThreads("bpos-http"));
+        if(i1 > 0)
+            bhttpserver.cache = new BResultCache(i1);
+        try
+        {
+            if(s1 != null)
+                bmodelregistry.setModelDir(s1);
+            bhttpserver.start(s2, Integer.parseInt(args[l + 3]));
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+        }
+    }
+
+    public void start(int i)
+        throws IOException
+    {
+        start("127.0.0.1", i);
+    }
+
+    public void start(String s, int i)
+        throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getByName(s), i), 0);
+        server.createContext("/tag", new HttpHandler() {
+
+            public void handle(HttpExchange httpexchange)
+                throws IOException
+            {
+                handleTag(httpexchange);
+            }
+
+        });
+        server.createContext("/health", new HttpHandler() {
+
+            public void handle(HttpExchange httpexchange)
+                throws IOException
+            {
+                reply(httpexchange, 200, "OK\n");
+            }
+
+        });
+        server.createContext("/models", new HttpHandler() {
+
+            public void handle(HttpExchange httpexchange)
+                throws IOException
+            {
+                reply(httpexchange, 200, models.report());
+            }
+
+        });
+        server.createContext("/reload", new HttpHandler() {
+
+            public void handle(HttpExchange httpexchange)
+                throws IOException
+            {
+                handleReload(httpexchange);
+            }
+
+        });
+        server.createContext("/metrics", new HttpHandler() {
+
+            public void handle(HttpExchange httpexchange)
+                throws IOException
+            {
+                reply(httpexchange, 200, getMetrics());
+            }
+
+        });
+        server.setExecutor(Executors.newCachedThreadPool(connections));
+        Thread thread = new Thread(new Runnable() {
+
+            public void run()
+            {
+                batch();
+            }
+
+        }, "bpos-batcher");
+        thread.setDaemon(true);
+        thread.start();
+        server.start();
+        System.err.println((new StringBuilder()).append("Listening on ").append(server.getAddress()).toString());
+    }
+
+    public void stop()
+    {
+        server.stop(0);
+        workers.shutdown();
+    }
+
+    private void handleTag(HttpExchange httpexchange)
+        throws IOException
+    {
+        if(!httpexchange.getRequestMethod().equals("POST"))
+        {
+            reply(httpexchange, 405, "POST one tokenized sentence per line\n");
+            return;
+        }
+        String s1 = httpexchange.getRequestURI().getQuery();
+        s1 = s1 != null && s1.startsWith(MODEL) ? s1.substring(MODEL.length()) : null;
+        BTaggerHolder btaggerholder = models.get(s1);
+        if(btaggerholder == null)
+        {
+            reply(httpexchange, 404, (new StringBuilder()).append("no model ").append(s1).append("\n").toString());
+            return;
+        }
+        long l = System.nanoTime();
+        byte abyte0[] = readBody(httpexchange);
+        if(abyte0 == null)
+        {
+            reply(httpexchange, 413, (new StringBuilder()).append("request body over ").append(MAX_BODY).append(" bytes\n").toString());
+            return;
+        }
+        BufferedReader bufferedreader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(abyte0), "UTF-8"));
+        Vector vector = new Vector();
+        for(String s = bufferedreader.readLine(); s != null; s = bufferedreader.readLine())
+            vector.add(s);
+
+        if(vector.size() > capacity)
+        {
+            reply(httpexchange, 413, (new StringBuilder()).append("more than ").append(capacity).append(" sentences\n").toString());
+            return;
+        }
+        Job job = new Job((String[])vector.toArray(new String[vector.size()]), btaggerholder.get(), cache);
+        requests.incrementAndGet();
+        if(job.lookup())
+        {
+            sentences.addAndGet(job.lines.length);
+            latency.addAndGet(System.nanoTime() - l);
+            reply(httpexchange, 200, job.format());
+            return;
+        }
+        if(!room.tryAcquire(job.lines.length))
+        {
+            rejected.incrementAndGet();
+            reply(httpexchange, 503, "overloaded\n");
+            return;
+        }
+        queue.add(job);
+        try
+        {
+            if(!job.done.await(TIMEOUT, TimeUnit.MILLISECONDS))
+            {
+                reply(httpexchange, 500, "timed out\n");
+                return;
+            }
+        }
+        catch(InterruptedException interruptedexception)
+        {
+            reply(httpexchange, 503, "interrupted\n");
+            return;
+        }
+        sentences.addAndGet(job.lines.length);
+        latency.addAndGet(System.nanoTime() - l);
+        reply(httpexchange, job.error == null ? 200 : 500, job.error == null ? job.format() : (new StringBuilder()).append(job.error).append("\n").toString());
+    }
+
+    // The request body, or null if it is longer than MAX_BODY bytes.
+    private static byte[] readBody(HttpExchange httpexchange)
+        throws IOException
+    {
+        String s = httpexchange.getRequestHeaders().getFirst("Content-Length");
+        if(s != null)
+            try
+            {
+                if(Long.parseLong(s.trim()) > (long)MAX_BODY)
+                    return null;
+            }
+            catch(NumberFormatException numberformatexception) { }
+        InputStream inputstream = httpexchange.getRequestBody();
+        ByteArrayOutputStream bytearrayoutputstream = new ByteArrayOutputStream();
+        byte abyte0[] = new byte[8192];
+        for(int i = inputstream.read(abyte0); i >= 0; i = inputstream.read(abyte0))
+        {
+            if(bytearrayoutputstream.size() + i > MAX_BODY)
+                return null;
+            bytearrayoutputstream.write(abyte0, 0, i);
+        }
+
+        return bytearrayoutputstream.toByteArray();
+    }
+
+    private void handleReload(HttpExchange httpexchange)
+        throws IOException
+    {
+        if(!httpexchange.getRequestMethod().equals("POST"))
+        {
+            reply(httpexchange, 405, "POST the weights and the lables file, one per line\n");
+            return;
+        }
+        BufferedReader bufferedreader = new BufferedReader(new InputStreamReader(httpexchange.getRequestBody(), "UTF-8"));
+        String s = bufferedreader.readLine();
+        String s1 = bufferedreader.readLine();
+        if(s == null || s1 == null)
+        {
+            reply(httpexchange, 400, "POST the weights and the lables file, one per line\n");
+            return;
+        }
+        String s2 = bufferedreader.readLine();
+        s2 = s2 != null && s2.trim().length() != 0 ? s2.trim() : models.getDefault();
+        String s3 = models.reload(s2, s.trim(), s1.trim());
+        if(s3 == null)
+            reply(httpexchange, 200, (new StringBuilder()).append("reloaded ").append(s2).append(", generation ").append(models.get(s2).getGeneration()).append("\n").toString());
+        else
+            reply(httpexchange, models.isReloadable() ? 500 : 403, (new StringBuilder()).append(s3).append("\n").toString());
+    }
+
+    private static void reply(HttpExchange httpexchange, int i, String s)
+        throws IOException
+    {
+        byte abyte0[] = s.getBytes("UTF-8");
+        httpexchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        httpexchange.sendResponseHeaders(i, abyte0.length);
+        OutputStream outputstream = httpexchange.getResponseBody();
+        outputstream.write(abyte0);
+        outputstream.close();
+    }
+
+    private void batch()
+    {
+        try
+        {
+            do
+            {
+                Job job = (Job)queue.take();
+                room.release(job.lines.length);
+                final Vector vector = new Vector();
+                vector.add(job);
+                int i = job.lines.length;
+                long l = System.nanoTime() + (long)maxWait * 0xf4240L;
+                do
+                {
+                    if(i >= maxBatch)
+                        break;
+                    long l1 = l - System.nanoTime();
+                    if(l1 <= 0L)
+                        break;
+                    Job job1 = (Job)queue.poll(l1, TimeUnit.NANOSECONDS);
+                    if(job1 == null)
+                        break;
+                    room.release(job1.lines.length);
+                    vector.add(job1);
+                    i += job1.lines.length;
+                } while(true);
+                batches.incrementAndGet();
+                batched.addAndGet(i);
+                permits.acquire();
+                workers.execute(new Runnable() {
+
+                    public void run()
+                    {
+                        try
+                        {
+                            for(int j = 0; j < vector.size(); j++)
+                                ((Job)vector.get(j)).run();
+
+                        }
+                        finally
+                        {
+                            permits.release();
+                        }
+                    }
+
+                });
+            } while(true);
+        }
+        catch(InterruptedException interruptedexception)
+        {
+            return;
+        }
+    }
+
+    public String getMetrics()
+    {
+        long l = requests.get() - rejected.get();
+        long l1 = batches.get();
+        StringBuilder stringbuilder = new StringBuilder();
+        stringbuilder.append("requests ").append(requests.get()).append('\n');
+        stringbuilder.append("rejected ").append(rejected.get()).append('\n');
+        stringbuilder.append("sentences ").append(sentences.get()).append('\n');
+        stringbuilder.append("batches ").append(l1).append('\n');
+        stringbuilder.append("mean_batch_sentences ").append(l1 != 0L ? (double)batched.get() / (double)l1 : 0.0D).append('\n');
+        stringbuilder.append("mean_latency_ms ").append(l != 0L ? (double)latency.get() / (double)l / 1000000D : 0.0D).append('\n');
+        stringbuilder.append("queue_depth ").append(capacity - room.availablePermits()).append('\n');
+        stringbuilder.append("model_generation ").append(models.get(null).getGeneration()).append('\n');
+        stringbuilder.append("queue_capacity ").append(capacity).append('\n');
+        if(cache != null)
+            stringbuilder.append(cache.getMetrics());
+        return stringbuilder.toString();
+    }
+
+    private static class Job
+    {
+
+        void run()
+        {
+            try
+            {
+                for(int i = 0; i < lines.length; i++)
+                    if(result[i] == null)
+                    {
+                        BLinTagSample blintagsample = tagger.tagText(lines[i]);
+                        result[i] = BTagger.format(blintagsample);
+                        if(cache != null && !blintagsample.degraded)
+                            cache.put(tagger, lines[i], result[i]);
+                    }
+
+            }
+            catch(RuntimeException runtimeexception)
+            {
+                error = runtimeexception.toString();
+            }
+            catch(Error error1)
+            {
+                error = error1.toString();
+            }
+            finally
+            {
+                done.countDown();
+            }
+        }
+
+        // Fills in the cached sentences; true if all of them were cached.
+        boolean lookup()
+        {
+            if(cache == null)
+                return false;
+            boolean flag = true;
+            for(int i = 0; i < lines.length; i++)
+            {
+                result[i] = cache.get(tagger, lines[i]);
+                flag &= result[i] != null;
+            }
+
+            return flag;
+        }
+
+        String format()
+        {
+            StringBuilder stringbuilder = new StringBuilder();
+            for(int i = 0; i < result.length; i++)
+                stringbuilder.append(result[i]).append('\n');
+
+            return stringbuilder.toString();
+        }
+
+        String lines[];
+        String result[];
+        String error;
+        CountDownLatch done;
+        BTagger tagger;
+        BResultCache cache;
+
+        // The model is taken once, so the cached and the decoded sentences
+        // of a request come from the same model even across a reload.
+        Job(String as[], BTagger btagger, BResultCache bresultcache)
+        {
+            lines = as;
+            tagger = btagger;
+            cache = bresultcache;
+            result = new String[as.length];
+            done = new CountDownLatch(1);
+        }
+    }
+
+
+    private static final String MODEL = "model=";
+    private static final long TIMEOUT = 60000L;
+    private static final int MAX_BODY = 0x400000;
+    private BModelRegistry models;
+    public BResultCache cache;
+    private int maxBatch;
+    private int maxWait;
+    private LinkedBlockingQueue queue;
+    private Semaphore room;
+    private int capacity;
+    private Semaphore permits;
+    private ExecutorService workers;
+    private ThreadFactory connections;
+    private HttpServer server;
+    private AtomicLong requests;
+    private AtomicLong sentences;
+    private AtomicLong rejected;
+    private AtomicLong batches;
+    private AtomicLong batched;
+    private AtomicLong latency;
+}
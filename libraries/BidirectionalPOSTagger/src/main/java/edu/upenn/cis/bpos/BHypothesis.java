@@ -23,6 +23,12 @@ public class BHypothesis
         hypoScore = labelScore + contextScore;
     }
 
+    public void setLabelScore(double d)
+    {
+        labelScore = d;
+        hypoScore = labelScore + contextScore;
+    }
+
     public void setContextScore(double d)
     {
         contextScore = d;
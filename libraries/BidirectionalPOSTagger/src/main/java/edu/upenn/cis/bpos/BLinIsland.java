@@ -25,12 +25,17 @@ public class BLinIsland
         HashSet hashset = new HashSet();
         HashSet hashset1 = new HashSet();
         Hashtable hashtable = new Hashtable();
-        for(int j = 0; j < SLabelLib.target.size(); j++)
+        ctxFeat = new Hashtable();
+        Vector vector = sen.scores == null ? SLabelLib.target : sen.scores.target;
+        for(int j = 0; j < vector.size(); j++)
         {
-            SLabel slabel = (SLabel)SLabelLib.target.get(j);
+            SLabel slabel = (SLabel)vector.get(j);
+            if(!sen.isAllowed(lastPosi, slabel))
+                continue;
             genSktHypo(slabel, null, null, -1, 0.0D, null, null, -1, 0.0D, hashset, hashset1, hashtable, flag, true, 0);
         }
 
+        ctxFeat = null;
         keepKBest(hashset, hashset1, hashtable, flag);
         setTopHypo();
         if(flag)
@@ -81,10 +86,14 @@ public class BLinIsland
         HashSet hashset = new HashSet();
         HashSet hashset1 = new HashSet();
         Hashtable hashtable = new Hashtable();
+        ctxFeat = new Hashtable();
+        Vector vector = sen.scores == null ? SLabelLib.target : sen.scores.target;
 label0:
-        for(int j = 0; j < SLabelLib.target.size(); j++)
+        for(int j = 0; j < vector.size(); j++)
         {
-            SLabel slabel = (SLabel)SLabelLib.target.get(j);
+            SLabel slabel = (SLabel)vector.get(j);
+            if(!sen.isAllowed(lastPosi, slabel))
+                continue;
             boolean flag1 = true;
             if(islandFromLeft == null && islandFromRight == null)
                 genSktHypo(slabel, null, null, -1, 0.0D, null, null, -1, 0.0D, hashset, hashset1, hashtable, flag, true, 0);
@@ -171,6 +180,7 @@ label1:
             } while(true);
         }
 
+        ctxFeat = null;
         keepKBest(hashset, hashset1, hashtable, flag);
         setTopHypo();
         if(flag)
@@ -251,9 +261,16 @@ label1:
             hashtable.put(vector1, vector2);
         }
         vector2.add(bhypothesis);
-        genCandFeat(bhypothesis, sen, lastPosi, slabel, bsocket1, bsocket3);
-        bhypothesis.setContextScore(d + d1);
-        bhypothesis.compLblTtlScores(BLinTagLearn.feat);
+        if(sen.scores != null)
+        {
+            bhypothesis.setContextScore(d + d1);
+            bhypothesis.setLabelScore(getLabelScore(slabel, bsocket1, bsocket3));
+        } else
+        {
+            genCandFeat(bhypothesis, sen, lastPosi, slabel, bsocket1, bsocket3);
+            bhypothesis.setContextScore(d + d1);
+            bhypothesis.compLblTtlScores(BLinTagLearn.feat);
+        }
         if(flag)
             if(flag1 && slabel == sen.tags[lastPosi])
             {
@@ -340,6 +357,13 @@ label1:
                 vector.add(vector2);
             }
         } while(true);
+        if(!flag && BLinTagLearn.beamMargin > 0.0D)
+        {
+            int j1;
+            for(j1 = 1; j1 < vector1.size() && ((Double)vector1.firstElement()).doubleValue() - ((Double)vector1.get(j1)).doubleValue() <= BLinTagLearn.beamMargin; j1++);
+            vector1.setSize(j1);
+            vector.setSize(j1);
+        }
         leftBoundSocket = new Vector();
         rightBoundSocket = new Vector();
         for(int i = 0; i < vector.size(); i++)
@@ -420,64 +444,43 @@ label1:
 
     }
 
-    private void genCandFeat(BHypothesis bhypothesis, BLinTagSample blintagsample, int i, SLabel slabel, BSocket bsocket, BSocket bsocket1)
+    private double getLabelScore(SLabel slabel, BSocket bsocket, BSocket bsocket1)
     {
-        genAdwaitFeat(bhypothesis, blintagsample, i, slabel, bsocket, bsocket1);
-        genExtraFeat(bhypothesis, blintagsample, i, slabel, bsocket, bsocket1);
+        String s = ctxKey(bsocket, bsocket1);
+        if(!sen.scores.hasContext(lastPosi, s))
+            sen.scores.putContext(lastPosi, s, genCtxFeat(sen, lastPosi, bsocket, bsocket1));
+        return sen.scores.getScore(lastPosi, s, slabel);
     }
 
-    private void genAdwaitFeat(BHypothesis bhypothesis, BLinTagSample blintagsample, int i, SLabel slabel, BSocket bsocket, BSocket bsocket1)
+    private static String ctxKey(BSocket bsocket, BSocket bsocket1)
     {
-        String s = (new StringBuilder()).append("").append(slabel).toString();
-        String s1 = (new StringBuilder()).append("|X:").append(blintagsample.words[i].word.toLowerCase()).toString();
-        bhypothesis.features.add((new StringBuilder()).append(s).append(s1).toString());
-        String s2 = blintagsample.words[i].word;
-        String s3 = s2.toLowerCase();
-        byte abyte0[] = s3.getBytes();
-        String s4 = "";
-        String s5 = "";
-        byte byte0 = 4;
-        byte0 = 9;
-        for(int j = 0; j < byte0; j++)
-        {
-            int k = j;
-            if(k < abyte0.length)
-            {
-                s4 = (new StringBuilder()).append(s4).append((char)abyte0[k]).toString();
-                bhypothesis.features.add((new StringBuilder()).append(s).append("|P:").append(s4).toString());
-            }
-            int l = abyte0.length - 1 - j;
-            if(l >= 0)
-            {
-                s5 = (new StringBuilder()).append(s5).append((char)abyte0[l]).toString();
-                bhypothesis.features.add((new StringBuilder()).append(s).append("|S:").append(s5).toString());
-            }
-        }
+        return (new StringBuilder()).append(bsocket != null ? bsocket.toString() : "").append("#").append(bsocket1 != null ? bsocket1.toString() : "").toString();
+    }
 
-        boolean flag = false;
-        boolean flag1 = false;
-        boolean flag2 = false;
-        abyte0 = s2.getBytes();
-        for(int i1 = 0; i1 < abyte0.length; i1++)
+    private void genCandFeat(BHypothesis bhypothesis, BLinTagSample blintagsample, int i, SLabel slabel, BSocket bsocket, BSocket bsocket1)
+    {
+        String s = ctxKey(bsocket, bsocket1);
+        String as[] = (String[])ctxFeat.get(s);
+        if(as == null)
         {
-            char c = (char)abyte0[i1];
-            flag |= Character.isDigit(c);
-            if(i > 0 || i1 > 0)
-                flag1 |= Character.isUpperCase(c);
-            flag2 |= c == '-';
+            as = genCtxFeat(blintagsample, i, bsocket, bsocket1);
+            ctxFeat.put(s, as);
         }
+        String s1 = (new StringBuilder()).append("").append(slabel).toString();
+        bhypothesis.features.ensureCapacity(as.length);
+        for(int j = 0; j < as.length; j++)
+            bhypothesis.features.add((new StringBuilder()).append(s1).append(as[j]).toString());
 
-        if(flag)
-            bhypothesis.features.add((new StringBuilder()).append(s).append("|NM").toString());
-        if(flag1)
-            bhypothesis.features.add((new StringBuilder()).append(s).append("|UP").toString());
-        if(flag2)
-            bhypothesis.features.add((new StringBuilder()).append(s).append("|HF").toString());
+    }
+
+    private String[] genCtxFeat(BLinTagSample blintagsample, int i, BSocket bsocket, BSocket bsocket1)
+    {
+        BObservation bobservation = blintagsample.getObservation(i);
         Vector vector = new Vector();
         if(bsocket != null)
         {
-            for(int j1 = 0; j1 < bsocket.sktLabel.size(); j1++)
-                vector.add(((SLabel)bsocket.sktLabel.get(j1)).lbl);
+            for(int j = 0; j < bsocket.sktLabel.size(); j++)
+                vector.add(((SLabel)bsocket.sktLabel.get(j)).lbl);
 
             if(vector.size() < 2 && i - vector.size() == 0)
                 vector.insertElementAt("@", 0);
@@ -487,139 +490,100 @@ label1:
         Vector vector1 = new Vector();
         if(bsocket1 != null)
         {
-            for(int k1 = 0; k1 < bsocket1.sktLabel.size(); k1++)
-                vector1.add(((SLabel)bsocket1.sktLabel.get(k1)).lbl);
+            for(int k = 0; k < bsocket1.sktLabel.size(); k++)
+                vector1.add(((SLabel)bsocket1.sktLabel.get(k)).lbl);
 
             if(vector1.size() < 2 && i + vector1.size() == blintagsample.words.length - 1)
                 vector1.add("@");
         } else
         if(i == blintagsample.words.length - 1)
             vector1.add("@");
-        if(vector.size() > 0)
-        {
-            String s6 = s;
-            int i2 = 0;
-            for(int l2 = vector.size() - 1; l2 >= 0; l2--)
-            {
-                i2++;
-                s6 = (new StringBuilder()).append(s6).append("|L").append(i2).append(":").append((String)vector.get(l2)).toString();
-                bhypothesis.features.add(s6);
-            }
+        Vector vector2 = new Vector();
+        genAdwaitFeat(vector2, bobservation, vector, vector1);
+        genExtraFeat(vector2, bobservation, vector, vector1);
+        String as[] = new String[vector2.size()];
+        vector2.copyInto(as);
+        return as;
+    }
+
+    private void genAdwaitFeat(Vector vector, BObservation bobservation, Vector vector1, Vector vector2)
+    {
+        for(int i = 0; i < bobservation.head.length; i++)
+            vector.add(bobservation.head[i]);
 
-        }
         if(vector1.size() > 0)
         {
-            String s7 = s;
-            int j2 = 0;
-            for(int i3 = 0; i3 < vector1.size(); i3++)
+            String s = "";
+            int j = 0;
+            for(int l = vector1.size() - 1; l >= 0; l--)
             {
-                j2++;
-                s7 = (new StringBuilder()).append(s7).append("|R").append(j2).append(":").append((String)vector1.get(i3)).toString();
-                bhypothesis.features.add(s7);
+                j++;
+                s = (new StringBuilder()).append(s).append("|L").append(j).append(":").append((String)vector1.get(l)).toString();
+                vector.add(s);
             }
 
         }
-        if(vector.size() > 0 && vector1.size() > 0)
-        {
-            String s8 = (new StringBuilder()).append("|L1:").append((String)vector.lastElement()).append("|R1:").append((String)vector1.firstElement()).toString();
-            bhypothesis.features.add((new StringBuilder()).append(s).append(s8).toString());
-        }
-        for(int l1 = -2; l1 <= 2; l1++)
+        if(vector2.size() > 0)
         {
-            if(l1 == 0)
-                continue;
-            int k2 = i + l1;
-            String s9 = "@";
-            if(k2 >= 0 && k2 < blintagsample.words.length)
-                s9 = blintagsample.words[k2].word.toLowerCase();
-            else
-            if(k2 == -2 || k2 == blintagsample.words.length + 1)
-                continue;
-            String s10 = "|L";
-            int j3 = 0 - l1;
-            if(l1 > 0)
+            String s1 = "";
+            int k = 0;
+            for(int i1 = 0; i1 < vector2.size(); i1++)
             {
-                s10 = "|R";
-                j3 = l1;
+                k++;
+                s1 = (new StringBuilder()).append(s1).append("|R").append(k).append(":").append((String)vector2.get(i1)).toString();
+                vector.add(s1);
             }
-            bhypothesis.features.add((new StringBuilder()).append(s).append(s10).append(j3).append("X:").append(s9).toString());
+
         }
+        if(vector1.size() > 0 && vector2.size() > 0)
+            vector.add((new StringBuilder()).append("|L1:").append((String)vector1.lastElement()).append("|R1:").append((String)vector2.firstElement()).toString());
+        for(int j1 = 0; j1 < bobservation.tail.length; j1++)
+            vector.add(bobservation.tail[j1]);
 
     }
 
-    private void genExtraFeat(BHypothesis bhypothesis, BLinTagSample blintagsample, int i, SLabel slabel, BSocket bsocket, BSocket bsocket1)
+    private void genExtraFeat(Vector vector, BObservation bobservation, Vector vector1, Vector vector2)
     {
-        String s = (new StringBuilder()).append("").append(slabel).toString();
-        String s1 = (new StringBuilder()).append("|X:").append(blintagsample.words[i].word.toLowerCase()).toString();
-        Vector vector = new Vector();
-        if(bsocket != null)
-        {
-            for(int j = 0; j < bsocket.sktLabel.size(); j++)
-                vector.add(((SLabel)bsocket.sktLabel.get(j)).lbl);
-
-            if(vector.size() < 2 && i - vector.size() == 0)
-                vector.insertElementAt("@", 0);
-        } else
-        if(i == 0)
-            vector.add("@");
-        Vector vector1 = new Vector();
-        if(bsocket1 != null)
-        {
-            for(int k = 0; k < bsocket1.sktLabel.size(); k++)
-                vector1.add(((SLabel)bsocket1.sktLabel.get(k)).lbl);
-
-            if(vector1.size() < 2 && i + vector1.size() == blintagsample.words.length - 1)
-                vector1.add("@");
-        } else
-        if(i == blintagsample.words.length - 1)
-            vector1.add("@");
-        if(vector.size() > 0)
+        String s = bobservation.lex;
+        if(vector1.size() > 0)
         {
-            String s2 = s;
-            int l = 0;
-            for(int j1 = vector.size() - 1; j1 >= 0; j1--)
+            String s1 = "";
+            int i = 0;
+            for(int k = vector1.size() - 1; k >= 0; k--)
             {
-                l++;
-                s2 = (new StringBuilder()).append(s2).append("|L").append(l).append(":").append((String)vector.get(j1)).toString();
-                bhypothesis.features.add((new StringBuilder()).append(s2).append(s1).toString());
-                if(l > 1)
+                i++;
+                s1 = (new StringBuilder()).append(s1).append("|L").append(i).append(":").append((String)vector1.get(k)).toString();
+                vector.add((new StringBuilder()).append(s1).append(s).toString());
+                if(i > 1)
                 {
-                    bhypothesis.features.add((new StringBuilder()).append(s).append("|L").append(l).append(":").append((String)vector.get(j1)).toString());
-                    bhypothesis.features.add((new StringBuilder()).append(s).append("|L").append(l).append(":").append((String)vector.get(j1)).append(s1).toString());
+                    vector.add((new StringBuilder()).append("|L").append(i).append(":").append((String)vector1.get(k)).toString());
+                    vector.add((new StringBuilder()).append("|L").append(i).append(":").append((String)vector1.get(k)).append(s).toString());
                 }
             }
 
         }
-        if(vector1.size() > 0)
+        if(vector2.size() > 0)
         {
-            String s3 = s;
-            int i1 = 0;
-            for(int k1 = 0; k1 < vector1.size(); k1++)
+            String s2 = "";
+            int j = 0;
+            for(int l = 0; l < vector2.size(); l++)
             {
-                i1++;
-                s3 = (new StringBuilder()).append(s3).append("|R").append(i1).append(":").append((String)vector1.get(k1)).toString();
-                bhypothesis.features.add((new StringBuilder()).append(s3).append(s1).toString());
-                if(i1 > 1)
+                j++;
+                s2 = (new StringBuilder()).append(s2).append("|R").append(j).append(":").append((String)vector2.get(l)).toString();
+                vector.add((new StringBuilder()).append(s2).append(s).toString());
+                if(j > 1)
                 {
-                    bhypothesis.features.add((new StringBuilder()).append(s).append("|R").append(i1).append(":").append((String)vector1.get(k1)).toString());
-                    bhypothesis.features.add((new StringBuilder()).append(s).append("|R").append(i1).append(":").append((String)vector1.get(k1)).append(s1).toString());
+                    vector.add((new StringBuilder()).append("|R").append(j).append(":").append((String)vector2.get(l)).toString());
+                    vector.add((new StringBuilder()).append("|R").append(j).append(":").append((String)vector2.get(l)).append(s).toString());
                 }
             }
 
         }
-        if(vector.size() > 0 && vector1.size() > 0)
-        {
-            String s4 = (new StringBuilder()).append("|L1:").append((String)vector.lastElement()).append("|R1:").append((String)vector1.firstElement()).toString();
-            bhypothesis.features.add((new StringBuilder()).append(s).append(s4).append(s1).toString());
-        }
-        String s5 = "@";
-        if(i - 1 >= 0)
-            s5 = blintagsample.words[i - 1].word.toLowerCase();
-        bhypothesis.features.add((new StringBuilder()).append(s).append(s1).append("|L1X:").append(s5).toString());
-        String s6 = "@";
-        if(i + 1 < blintagsample.words.length)
-            s6 = blintagsample.words[i + 1].word.toLowerCase();
-        bhypothesis.features.add((new StringBuilder()).append(s).append(s1).append("|R1X:").append(s6).toString());
+        if(vector1.size() > 0 && vector2.size() > 0)
+            vector.add((new StringBuilder()).append("|L1:").append((String)vector1.lastElement()).append("|R1:").append((String)vector2.firstElement()).append(s).toString());
+        for(int i1 = 0; i1 < bobservation.extra.length; i1++)
+            vector.add(bobservation.extra[i1]);
+
     }
 
     public void display(StringBuffer stringbuffer)
@@ -715,4 +679,5 @@ label1:
     public BHypothesis goldHypo;
     public int goldLeftBoundSktID;
     public int goldRightBoundSktID;
+    private Hashtable ctxFeat;
 }
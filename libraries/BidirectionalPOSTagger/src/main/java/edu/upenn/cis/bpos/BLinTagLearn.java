@@ -3,26 +3,38 @@ package edu.upenn.cis.bpos;// Decompiled by Jad v1.5.8g. Copyright 2001 Pavel Ko
 // Decompiler options: packimports(3) 
 // Source File Name:   edu.upenn.cis.bpos.BLinTagLearn.java
 
+import java.io.IOException;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.*;
 
 public class BLinTagLearn
 {
 
-    public BLinTagLearn(String s, Vector vector, SFeatLib sfeatlib)
+    public BLinTagLearn(String s, List list, SFeatLib sfeatlib)
     {
         proj = s;
-        sample = vector;
+        sample = list;
         feat = sfeatlib;
     }
 
+    // A decoder for decode(sample, l, feat, target) only. It leaves the
+    // static project, weights and training mode alone, so loading a BTagger
+    // does not disturb a trainer or an evaluator in the same process.
+    BLinTagLearn()
+    {
+        sample = new Vector();
+    }
+
     public void train()
     {
         training = true;
         BHypothesis.training = true;
         BHypothesis.MARGIN_RATE = 48D;
-        for(int i = 0; i < maxRound; i++)
+        BCheckpoint.Writer writer = new BCheckpoint.Writer();
+        for(int i = startRound; i < maxRound; i++)
         {
-            for(int j = 0; j < sample.size(); j++)
+            for(int j = i != startRound ? 0 : startSentence; j < sample.size(); j++)
             {
                 System.err.println((new StringBuilder()).append("Sentence ").append(j).toString());
                 curSenID = j;
@@ -64,40 +76,413 @@ public class BLinTagLearn
                 } while(true);
                 if(k < blintagsample.words.length)
                     System.err.println((new StringBuilder()).append("LOOP: ").append(j).toString());
+                if(checkpointInterval > 0 && (j + 1) % checkpointInterval == 0 && j + 1 < sample.size())
+                    writer.submit(snapshot(i, j + 1), (new StringBuilder()).append(proj).append(".ckpt").toString(), null);
             }
 
-            feat.saveWeight((new StringBuilder()).append(proj).append(".").append(i).append(".fea").toString(), inner);
+            writer.submit(snapshot(i + 1, 0), checkpoint || checkpointInterval > 0 ? (new StringBuilder()).append(proj).append(".").append(i).append(".ckpt").toString() : null, (new StringBuilder()).append(proj).append(".").append(i).append(".fea").toString());
         }
 
+        writer.close();
+    }
+
+    public void resume(BCheckpoint bcheckpoint)
+    {
+        feat = bcheckpoint.feat;
+        inner = bcheckpoint.inner;
+        startRound = bcheckpoint.round;
+        startSentence = bcheckpoint.sentence;
+    }
+
+    private BCheckpoint snapshot(int i, int j)
+    {
+        return new BCheckpoint(feat.snapshot(), new Vector(SLabelLib.id2label), inner, i, j);
     }
 
     public void predict()
+    {
+        predict(BOutput.stdout(BOutput.TAGGED));
+    }
+
+    public void predict(BOutput boutput)
     {
         training = false;
         BHypothesis.training = false;
-        for(int i = 0; i < sample.size(); i++)
+        int k = 0;
+        try
+        {
+            for(int i = 0; i < sample.size(); i++)
+            {
+                BLinTagSample blintagsample = (BLinTagSample)sample.get(i);
+                BLinTagSample blintagsample1 = decode(blintagsample);
+                if(blintagsample1.degraded)
+                {
+                    System.err.println((new StringBuilder()).append("Degraded: ").append(i).toString());
+                    k++;
+                }
+                boutput.write(blintagsample.words, blintagsample1.tags);
+            }
+
+            boutput.flush();
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+        }
+
+        if(k > 0)
+            System.err.println((new StringBuilder()).append("").append(k).append(" of ").append(sample.size()).append(" sentences degraded").toString());
+    }
+
+    // "k" sets a fixed beam of k sockets; "k:m" keeps, at inference, only the
+    // sockets that score within m of the best one, at most k of them.
+    public static void setBeam(String s)
+    {
+        int i = s.indexOf(':');
+        if(i < 0)
+        {
+            KSOCKET = Integer.parseInt(s);
+            beamMargin = 0.0D;
+        } else
+        {
+            KSOCKET = Integer.parseInt(s.substring(0, i));
+            beamMargin = Double.parseDouble(s.substring(i + 1));
+        }
+    }
+
+    public BLinTagSample decode(BLinTagSample blintagsample)
+    {
+        return decode(blintagsample, getDeadline());
+    }
+
+    // l is a System.nanoTime() deadline, 0 for none. When the next island would
+    // likely end after it, the open positions take the label of their best
+    // candidate hypothesis and the result is marked degraded.
+    public BLinTagSample decode(BLinTagSample blintagsample, long l)
+    {
+        if(training)
+            return decodeSearch(blintagsample, l);
+        else
+            return decode(blintagsample, l, feat, SLabelLib.target);
+    }
+
+    // Decodes with the given weights and target labels instead of the static
+    // ones, so that several models can be used side by side.
+    public BLinTagSample decode(BLinTagSample blintagsample, long l, SFeatLib sfeatlib, Vector vector)
+    {
+        if(maxLength > 0 && blintagsample.words.length > maxLength)
+            return decodeSegments(blintagsample, l, sfeatlib, vector);
+        else
+            return decodeWhole(blintagsample, l, sfeatlib, vector);
+    }
+
+    // Tags a sentence longer than maxLength in segments of at most maxLength
+    // words, cut after hard punctuation where there is some in the second
+    // half of the segment. Each segment is decoded with OVERLAP words of
+    // context on both sides, so that the words next to a cut still see their
+    // feature window and the tags of their neighbours; only the tags of the
+    // segment itself are kept. The segments are decoded in parallel, the
+    // first one on the calling thread.
+    private BLinTagSample decodeSegments(BLinTagSample blintagsample, final long l, final SFeatLib sfeatlib, final Vector vector)
+    {
+        int ai[] = cut(blintagsample.words, maxLength);
+        int i = ai.length - 1;
+        final BLinTagSample ablintagsample[] = new BLinTagSample[i];
+        int ai1[] = new int[i];
+        Future afuture[] = new Future[i];
+        for(int j = 0; j < i; j++)
+        {
+            ai1[j] = Math.max(0, ai[j] - OVERLAP);
+            int k = Math.min(blintagsample.words.length, ai[j + 1] + OVERLAP);
+            ablintagsample[j] = new BLinTagSample(new SWord[k - ai1[j]]);
+            System.arraycopy(blintagsample.words, ai1[j], ablintagsample[j].words, 0, k - ai1[j]);
+            if(blintagsample.allowed != null)
+            {
+                ablintagsample[j].allowed = new SLabel[k - ai1[j]][];
+                System.arraycopy(blintagsample.allowed, ai1[j], ablintagsample[j].allowed, 0, k - ai1[j]);
+            }
+            if(j > 0)
+            {
+                final BLinTagSample segment = ablintagsample[j];
+                afuture[j] = getSegmentPool().submit(new Callable() {
+
+                    public Object call()
+                    {
+                        return decodeWhole(segment, l, sfeatlib, vector);
+                    }
+
+                });
+            }
+        }
+
+        BLinTagSample blintagsample1 = new BLinTagSample(blintagsample.words);
+        for(int i1 = 0; i1 < i; i1++)
+        {
+            BLinTagSample blintagsample2;
+            try
+            {
+                blintagsample2 = i1 != 0 ? (BLinTagSample)afuture[i1].get() : decodeWhole(ablintagsample[0], l, sfeatlib, vector);
+            }
+            catch(InterruptedException interruptedexception)
+            {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(interruptedexception.toString());
+            }
+            catch(ExecutionException executionexception)
+            {
+                throw new RuntimeException(executionexception.getCause().toString());
+            }
+            System.arraycopy(blintagsample2.tags, ai[i1] - ai1[i1], blintagsample1.tags, ai[i1], ai[i1 + 1] - ai[i1]);
+            blintagsample1.degraded |= blintagsample2.degraded;
+        }
+
+        return blintagsample1;
+    }
+
+    private BLinTagSample decodeWhole(BLinTagSample blintagsample, long l, SFeatLib sfeatlib, Vector vector)
+    {
+        blintagsample.scores = new BScoreTable(blintagsample.words.length, sfeatlib, vector);
+        BLinTagSample blintagsample1 = decodeSearch(blintagsample, l);
+        blintagsample.scores = null;
+        return blintagsample1;
+    }
+
+    // The segment boundaries, from 0 to the sentence length.
+    static int[] cut(SWord asword[], int i)
+    {
+        Vector vector = new Vector();
+        int j = 0;
+        vector.add(new Integer(0));
+        while(asword.length - j > i)
+        {
+            int k = j + i;
+            for(int l = j + i; l > j + i / 2; l--)
+            {
+                if(!isHardPunctuation(asword[l - 1].word))
+                    continue;
+                k = l;
+                break;
+            }
+
+            vector.add(new Integer(k));
+            j = k;
+        }
+        vector.add(new Integer(asword.length));
+        int ai[] = new int[vector.size()];
+        for(int i1 = 0; i1 < ai.length; i1++)
+            ai[i1] = ((Integer)vector.get(i1)).intValue();
+
+        return ai;
+    }
+
+    private static boolean isHardPunctuation(String s)
+    {
+        for(int i = 0; i < HARD_PUNCTUATION.length; i++)
+            if(HARD_PUNCTUATION[i].equals(s))
+                return true;
+
+        return false;
+    }
+
+    private static synchronized ExecutorService getSegmentPool()
+    {
+        if(segmentPool == null)
+            segmentPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), BThreads.daemonThreads("bpos-segment"));
+        return segmentPool;
+    }
+
+    public static long getDeadline()
+    {
+        return deadline <= 0L ? 0L : System.nanoTime() + deadline * 0xf4240L;
+    }
+
+    private BLinTagSample decodeSearch(BLinTagSample blintagsample, long l)
+    {
+        if(leftToRight)
+            return decodeLeftToRight(blintagsample);
+        Vector vector = new Vector();
+        Vector vector1 = new Vector();
+        initCands(vector1, blintagsample);
+        return search(vector, vector1, blintagsample, l);
+    }
+
+    // The easy-first loop: commits the best candidate island until none is
+    // left. vector holds the committed islands ordered by position and
+    // vector1 the candidates.
+    private BLinTagSample search(Vector vector, Vector vector1, BLinTagSample blintagsample, long l)
+    {
+        long l1 = System.nanoTime();
+        long l2 = 0L;
+        while(vector1.size() > 0)
+        {
+            if(l != 0L && l1 + l2 > l)
+                return decodeGreedy(vector, vector1, blintagsample);
+            BLinIsland blinisland = selectCand(vector1);
+            applyCand(vector, vector1, blinisland, blintagsample);
+            long l3 = System.nanoTime();
+            l2 = l3 - l1;
+            l1 = l3;
+        }
+        BLinIsland blinisland1 = (BLinIsland)vector.firstElement();
+        BLinTagSample blintagsample1 = new BLinTagSample(blintagsample.words);
+        blinisland1.retrieve(blintagsample1, blinisland1.topLeftBoundSktID, blinisland1.topRightBoundSktID);
+        return blintagsample1;
+    }
+
+    // Re-tags a sentence after some of its words were replaced. previous is
+    // the result of an earlier decodeIncremental of the sentence before the
+    // edit, or null. The committed islands of previous that do not cover a
+    // word within the feature window of a replaced word are kept as they
+    // are, and the easy-first loop is run only over the other positions.
+    // The result keeps its final island for the next edit. The kept islands
+    // are those a full decode would build, but the loop may commit the new
+    // ones in another order, so the tags can differ from decode() in rare
+    // cases. Insertions and deletions change the positions of every island
+    // and are decoded from scratch.
+    public BLinTagSample decodeIncremental(BLinTagSample blintagsample, BLinTagSample blintagsample1, SFeatLib sfeatlib, Vector vector)
+    {
+        if(blintagsample.words.length == 0)
+            return new BLinTagSample(blintagsample.words);
+        boolean aflag[] = null;
+        if(blintagsample1 != null && blintagsample1.island != null && blintagsample1.words.length == blintagsample.words.length)
+        {
+            aflag = changed(blintagsample1.words, blintagsample.words);
+            if(aflag == null)
+                return blintagsample1;
+        }
+        Vector vector1 = new Vector();
+        Vector vector2 = new Vector();
+        blintagsample.scores = new BScoreTable(blintagsample.words.length, sfeatlib, vector);
+        if(aflag == null)
+            initCands(vector2, blintagsample);
+        else
+            reuseIslands(blintagsample1.island, aflag, vector1, vector2, blintagsample);
+        BLinTagSample blintagsample2 = search(vector1, vector2, blintagsample, 0L);
+        blintagsample.scores = null;
+        blintagsample2.island = (BLinIsland)vector1.firstElement();
+        return blintagsample2;
+    }
+
+    // The positions whose observation features see a replaced word, or null
+    // if no word was replaced.
+    private static boolean[] changed(SWord asword[], SWord asword1[])
+    {
+        boolean aflag[] = new boolean[asword.length];
+        boolean flag = false;
+        for(int i = 0; i < asword.length; i++)
+        {
+            if(asword[i] == asword1[i])
+                continue;
+            flag = true;
+            for(int j = Math.max(0, i - WINDOW); j <= Math.min(asword.length - 1, i + WINDOW); j++)
+                aflag[j] = true;
+
+        }
+
+        return flag ? aflag : null;
+    }
+
+    private void reuseIslands(BLinIsland blinisland, boolean aflag[], Vector vector, Vector vector1, BLinTagSample blintagsample)
+    {
+        collectIslands(blinisland, aflag, vector);
+        BLinIsland ablinisland[] = new BLinIsland[aflag.length];
+        BLinIsland ablinisland1[] = new BLinIsland[aflag.length];
+        boolean aflag1[] = new boolean[aflag.length];
+        for(int i = 0; i < vector.size(); i++)
         {
-            BLinTagSample blintagsample = (BLinTagSample)sample.get(i);
-            Vector vector = new Vector();
-            Vector vector1 = new Vector();
-            initCands(vector1, blintagsample);
-            BLinIsland blinisland;
-            for(; vector1.size() > 0; applyCand(vector, vector1, blinisland, blintagsample))
-                blinisland = selectCand(vector1);
-
-            BLinIsland blinisland1 = (BLinIsland)vector.firstElement();
-            BLinTagSample blintagsample1 = new BLinTagSample(blinisland1.sen.words);
-            blinisland1.retrieve(blintagsample1, blinisland1.topLeftBoundSktID, blinisland1.topRightBoundSktID);
-            for(int j = 0; j < blintagsample.words.length; j++)
+            BLinIsland blinisland1 = (BLinIsland)vector.get(i);
+            ablinisland[blinisland1.rightBoundPosi] = blinisland1;
+            ablinisland1[blinisland1.leftBoundPosi] = blinisland1;
+            for(int k = blinisland1.leftBoundPosi; k <= blinisland1.rightBoundPosi; k++)
+                aflag1[k] = true;
+
+        }
+
+        for(int j = 0; j < aflag.length; j++)
+        {
+            if(aflag1[j])
+                continue;
+            BLinIsland blinisland2 = j <= 0 ? null : ablinisland[j - 1];
+            BLinIsland blinisland3 = j + 1 >= aflag.length ? null : ablinisland1[j + 1];
+            if(blinisland2 == null && blinisland3 == null)
+                vector1.add(new BLinIsland(blintagsample, j, training));
+            else
+                vector1.add(new BLinIsland(blintagsample, j, blinisland2, blinisland3, training));
+        }
+
+    }
+
+    // The largest islands under blinisland that cover no changed position,
+    // in the order of their positions.
+    private static void collectIslands(BLinIsland blinisland, boolean aflag[], Vector vector)
+    {
+        if(blinisland == null)
+            return;
+        for(int i = blinisland.leftBoundPosi; i <= blinisland.rightBoundPosi; i++)
+            if(aflag[i])
             {
-                if(j > 0)
-                    System.out.print(" ");
-                System.out.print((new StringBuilder()).append("").append(blintagsample.words[j]).append("_").append(blintagsample1.tags[j]).toString());
+                collectIslands(blinisland.islandFromLeft, aflag, vector);
+                collectIslands(blinisland.islandFromRight, aflag, vector);
+                return;
             }
 
-            System.out.println("");
+        vector.add(blinisland);
+    }
+
+    // Tags strictly from left to right: the island of position i is built on
+    // the island of [0, i-1] alone, so the right context labels are unknown
+    // and only KSOCKET sockets are kept at each step.
+    public BLinTagSample decodeLeftToRight(BLinTagSample blintagsample)
+    {
+        BLinIsland blinisland = null;
+        for(int i = 0; i < blintagsample.words.length; i++)
+            blinisland = new BLinIsland(blintagsample, i, blinisland, null, training);
+
+        BLinTagSample blintagsample1 = new BLinTagSample(blintagsample.words);
+        blinisland.retrieve(blintagsample1, blinisland.topLeftBoundSktID, blinisland.topRightBoundSktID);
+        return blintagsample1;
+    }
+
+    private BLinTagSample decodeGreedy(Vector vector, Vector vector1, BLinTagSample blintagsample)
+    {
+        BLinTagSample blintagsample1 = new BLinTagSample(blintagsample.words);
+        for(int i = 0; i < vector.size(); i++)
+        {
+            BLinIsland blinisland = (BLinIsland)vector.get(i);
+            blinisland.retrieve(blintagsample1, blinisland.topLeftBoundSktID, blinisland.topRightBoundSktID);
+        }
+
+        for(int j = 0; j < vector1.size(); j++)
+        {
+            BLinIsland blinisland1 = (BLinIsland)vector1.get(j);
+            blintagsample1.tags[blinisland1.lastPosi] = blinisland1.topOpHypo.lastLabel;
+        }
+
+        blintagsample1.degraded = true;
+        return blintagsample1;
+    }
+
+    public double tagAccuracy()
+    {
+        training = false;
+        BHypothesis.training = false;
+        int i = 0;
+        int j = 0;
+        for(int k = 0; k < sample.size(); k++)
+        {
+            BLinTagSample blintagsample = (BLinTagSample)sample.get(k);
+            BLinTagSample blintagsample1 = decode(blintagsample);
+            j += blintagsample1.words.length;
+            for(int l = 0; l < blintagsample1.words.length; l++)
+                if(blintagsample1.tags[l] == blintagsample.tags[l])
+                    i++;
+
         }
 
+        if(j == 0)
+            return 0.0D;
+        else
+            return (1.0D * (double)i) / (double)j;
     }
 
     public void evaluate()
@@ -111,17 +496,8 @@ public class BLinTagLearn
         {
             System.err.println((new StringBuilder()).append("Sentence ").append(l).toString());
             BLinTagSample blintagsample = (BLinTagSample)sample.get(l);
-            Vector vector = new Vector();
-            Vector vector1 = new Vector();
             boolean flag = true;
-            initCands(vector1, blintagsample);
-            BLinIsland blinisland;
-            for(; vector1.size() > 0; applyCand(vector, vector1, blinisland, blintagsample))
-                blinisland = selectCand(vector1);
-
-            BLinIsland blinisland1 = (BLinIsland)vector.firstElement();
-            BLinTagSample blintagsample1 = new BLinTagSample(blinisland1.sen.words);
-            blinisland1.retrieve(blintagsample1, blinisland1.topLeftBoundSktID, blinisland1.topRightBoundSktID);
+            BLinTagSample blintagsample1 = decode(blintagsample);
             j += blintagsample1.words.length;
             for(int i1 = 0; i1 < blintagsample1.words.length; i1++)
                 if(blintagsample1.tags[i1] == blintagsample.tags[i1])
@@ -134,7 +510,7 @@ public class BLinTagLearn
             StringBuffer stringbuffer = new StringBuffer("GLD: ");
             blintagsample.display(stringbuffer);
             stringbuffer.append("\nTOP: ");
-            ((BLinIsland)vector.firstElement()).display(stringbuffer);
+            blintagsample1.display(stringbuffer);
             System.err.println(stringbuffer.toString());
         }
 
@@ -228,6 +604,9 @@ public class BLinTagLearn
         for(int i = 0; i < vector.size(); i++)
         {
             BLinIsland blinisland1 = (BLinIsland)vector.get(i);
+            // a position with a single allowed tag is an anchor, committed first
+            if(blinisland1.sen.isForced(blinisland1.lastPosi))
+                return blinisland1;
             if(blinisland1.topOpHypo.getLabelScoreMGN() > d)
             {
                 d = blinisland1.topOpHypo.getLabelScoreMGN();
@@ -338,18 +717,35 @@ public class BLinTagLearn
 
     public static final boolean EXTENDFEAT = true;
     public static final int NGRAM = 3;
+    private static final int WINDOW = 2;
+    private static final int OVERLAP = 4;
+    private static final String HARD_PUNCTUATION[] = {
+        ";", ":", "--", ".", "?", "!"
+    };
+    private static ExecutorService segmentPool;
+    public static int maxLength = 0;
     public static int KSOCKET = 1;
+    public static double beamMargin = 0.0D;
+    public static boolean leftToRight = false;
+    public static boolean useMatrix = false;
     public static int KHYPO = 1;
     public static final double TAU = 0.029999999999999999D;
     public static final double RADIUS = 40D;
     public static final double MARGIN_RATE = 48D;
     public static final int maxLoop = 50;
     public static int maxRound = 10;
+    public static long deadline = 0L;
+    public static boolean checkpoint = false;
+    public static int checkpointInterval = 0;
+    public static int pruneFreq = 0;
+    public static double pruneWeight = 0.0D;
     public static boolean training;
     public static SFeatLib feat;
     public static String proj;
-    public Vector sample;
+    public List sample;
     private static int currentRound = 0;
+    private int startRound;
+    private int startSentence;
     public static int inner = 0;
     public static int curSenID = -1;
 
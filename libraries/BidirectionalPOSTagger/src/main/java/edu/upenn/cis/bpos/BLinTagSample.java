@@ -34,6 +34,80 @@ public class BLinTagSample extends BSample
         tags = new SLabel[asword.length];
     }
 
+    // Tokens are "word" or "word_TAG|TAG...", a word that may only take one
+    // of the given tags. Tags that are not known labels are ignored; a token
+    // whose suffix names no known label, such as snake_case, is a plain word.
+    public static BLinTagSample withConstraints(String as[])
+    {
+        Vector vector = new Vector();
+        SLabel aslabel[][] = new SLabel[as.length][];
+        boolean flag = false;
+        for(int i = 0; i < as.length; i++)
+        {
+            int j = as[i].lastIndexOf('_');
+            if(j > 0)
+                aslabel[i] = parseLabels(as[i].substring(j + 1));
+            if(aslabel[i] != null)
+            {
+                vector.add(as[i].substring(0, j));
+                flag = true;
+            } else
+            {
+                vector.add(as[i]);
+            }
+        }
+
+        BLinTagSample blintagsample = new BLinTagSample(vector);
+        if(flag)
+            blintagsample.allowed = aslabel;
+        return blintagsample;
+    }
+
+    private static SLabel[] parseLabels(String s)
+    {
+        String as[] = s.split("\\|");
+        Vector vector = new Vector();
+        for(int i = 0; i < as.length; i++)
+        {
+            Integer integer = (Integer)SLabelLib.label2id.get(as[i]);
+            if(integer != null)
+                vector.add(SLabelLib.getSLabel(integer.intValue()));
+        }
+
+        if(vector.size() == 0)
+        {
+            return null;
+        } else
+        {
+            SLabel aslabel[] = new SLabel[vector.size()];
+            vector.copyInto(aslabel);
+            return aslabel;
+        }
+    }
+
+    public boolean isAllowed(int i, SLabel slabel)
+    {
+        if(allowed == null || allowed[i] == null)
+            return true;
+        for(int j = 0; j < allowed[i].length; j++)
+            if(allowed[i][j] == slabel)
+                return true;
+
+        return false;
+    }
+
+    public boolean isForced(int i)
+    {
+        return allowed != null && allowed[i] != null && allowed[i].length == 1;
+    }
+
+    public BObservation getObservation(int i)
+    {
+        if(obs == null)
+            obs = BObservation.extractAll(this);
+        return obs[i];
+    }
+
     public void display(StringBuffer stringbuffer)
     {
         for(int i = 0; i < words.length; i++)
@@ -55,4 +129,9 @@ public class BLinTagSample extends BSample
 
     public SWord words[];
     public SLabel tags[];
+    public BObservation obs[];
+    public boolean degraded;
+    public BScoreTable scores;
+    public BLinIsland island;
+    public SLabel allowed[][];
 }
@@ -0,0 +1,65 @@
+package edu.upenn.cis.bpos;
+
+import java.io.File;
+
+// Offline pruning of a trained model. Features updated fewer than <min freq>
+// times during training, or whose averaged weight is smaller than <min weight>
+// in absolute value, are dropped. Update counts only survive in checkpoints,
+// so a frequency cutoff needs a .ckpt file; a .fea file can only be pruned
+// by weight. A quantized .qfea table cannot be pruned, prune the .fea file
+// before it is quantized.
+public class BModelPrune
+{
+
+    public BModelPrune()
+    {
+    }
+
+    public static void main(String args[])
+    {
+        if(args.length != 5 && args.length != 6)
+        {
+            System.out.println("Usage: java -classpath $CLASSPATH edu.upenn.cis.bpos.BModelPrune <weights|checkpoint> <lables> <min freq> <min weight> <output weights> [<gold file>]");
+            System.out.println("For example: java -classpath $CLASSPATH edu.upenn.cis.bpos.BModelPrune data/k3.fea data/postag.txt 0 0.5 data/k3.pruned.fea data/sample.conll");
+            return;
+        }
+        SWordLib.init();
+        SLabelLib.init();
+        SLabelLib.loadLabels(args[1]);
+        SLabelLib.initTargetWithLabel();
+        int i = Integer.parseInt(args[2]);
+        double d = Double.parseDouble(args[3]);
+        if(i > 1 && !args[0].endsWith(".ckpt"))
+        {
+            System.err.println("A frequency cutoff needs a checkpoint, a .fea file has no update counts");
+            return;
+        }
+        SFeatLib sfeatlib = bpos.loadModel(args[0]);
+        if(sfeatlib == null)
+            return;
+        if(sfeatlib instanceof SQuantFeatLib)
+        {
+            System.err.println("A quantized model cannot be pruned, prune the .fea file before quantizing");
+            return;
+        }
+        SFeatLib sfeatlib1 = sfeatlib.prune(i, d);
+        sfeatlib1.saveFeatTable(args[4]);
+        int j = sfeatlib.id2feat.size();
+        int k = sfeatlib1.id2feat.size();
+        System.out.println((new StringBuilder()).append("Features: ").append(j).toString());
+        System.out.println((new StringBuilder()).append("Kept: ").append(k).toString());
+        System.out.println((new StringBuilder()).append("Reduction: ").append(j != 0 ? 1.0D - (1.0D * (double)k) / (double)j : 0.0D).toString());
+        if(!args[0].endsWith(".ckpt"))
+            System.out.println((new StringBuilder()).append("Bytes: ").append((new File(args[0])).length()).append(" -> ").append((new File(args[4])).length()).toString());
+        else
+            System.out.println((new StringBuilder()).append("Bytes: ").append((new File(args[4])).length()).toString());
+        if(args.length == 6)
+        {
+            bpos.loadGoldStandard(args[5]);
+            double d1 = (new BLinTagLearn(bpos.proj, bpos.gold, sfeatlib)).tagAccuracy();
+            double d2 = (new BLinTagLearn(bpos.proj, bpos.gold, sfeatlib1)).tagAccuracy();
+            System.out.println((new StringBuilder()).append("Precision: ").append(d1).append(" -> ").append(d2).toString());
+            System.out.println((new StringBuilder()).append("Delta: ").append(d2 - d1).toString());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package edu.upenn.cis.bpos;
+
+import java.io.File;
+
+// Converts a trained model into a quantized SQuantFeatLib (.qfea). With
+// -mph the feature strings are replaced by a minimal perfect hash; without
+// it they stay in memory and, being most of the model, keep the saving to
+// the weights alone. With a
+// gold file, 16 and 8 bit scales are calibrated by trying a few clipping
+// quantiles of the absolute weights, and the saved model is reloaded and
+// compared with the original on the same file.
+public class BModelQuantize
+{
+
+    public BModelQuantize()
+    {
+    }
+
+    public static void main(String args[])
+    {
+        boolean flag = args.length > 0 && args[0].equals("-mph");
+        if(flag)
+        {
+            String as[] = new String[args.length - 1];
+            System.arraycopy(args, 1, as, 0, as.length);
+            args = as;
+        }
+        if(args.length != 4 && args.length != 5 || !args[2].equals("32") && !args[2].equals("16") && !args[2].equals("8"))
+        {
+            System.out.println("Usage: java -classpath $CLASSPATH edu.upenn.cis.bpos.BModelQuantize [-mph] <weights> <lables> <32|16|8> <output model> [<gold file>]");
+            System.out.println("       the feature strings take most of the memory of a model, and only -mph drops them");
+            System.out.println("For example: java -classpath $CLASSPATH edu.upenn.cis.bpos.BModelQuantize -mph data/k3.fea data/postag.txt 8 data/k3.qfea data/sample.conll");
+            return;
+        }
+        SWordLib.init();
+        SLabelLib.init();
+        SLabelLib.loadLabels(args[1]);
+        SLabelLib.initTargetWithLabel();
+        SFeatLib sfeatlib = bpos.loadModel(args[0]);
+        if(sfeatlib == null)
+            return;
+        int i = Integer.parseInt(args[2]);
+        double d = 0.0D;
+        if(args.length == 5)
+        {
+            bpos.loadGoldStandard(args[4]);
+            d = (new BLinTagLearn(bpos.proj, bpos.gold, sfeatlib)).tagAccuracy();
+        }
+        double d1 = 1.0D;
+        if(args.length == 5 && i < 32)
+        {
+            double d2 = -1D;
+            for(int j = 0; j < CLIP.length; j++)
+            {
+                SQuantFeatLib squantfeatlib1 = new SQuantFeatLib(sfeatlib, i, CLIP[j]);
+                double d4 = (new BLinTagLearn(bpos.proj, bpos.gold, squantfeatlib1)).tagAccuracy();
+                System.out.println((new StringBuilder()).append("Clip ").append(CLIP[j]).append(": scale ").append(squantfeatlib1.scale).append(", precision ").append(d4).toString());
+                if(d4 > d2)
+                {
+                    d2 = d4;
+                    d1 = CLIP[j];
+                }
+            }
+
+        }
+        SQuantFeatLib squantfeatlib = new SQuantFeatLib(sfeatlib, i, d1);
+        if(flag)
+            squantfeatlib.freeze();
+        squantfeatlib.save(args[3]);
+        System.out.println((new StringBuilder()).append("Features: ").append(squantfeatlib.getSize()).toString());
+        if(flag)
+            System.out.println((new StringBuilder()).append("Dictionary bytes: ").append(squantfeatlib.getDictBytes()).toString());
+        System.out.println((new StringBuilder()).append("Weight bytes: ").append(8L * (long)squantfeatlib.getSize()).append(" -> ").append(squantfeatlib.getWeightBytes()).toString());
+        System.out.println((new StringBuilder()).append("Resident bytes: ").append(sfeatlib.getResidentBytes()).append(" -> ").append(squantfeatlib.getResidentBytes()).toString());
+        if(!flag)
+            System.out.println("The feature strings are kept; quantize with -mph to drop them");
+        System.out.println((new StringBuilder()).append("File bytes: ").append((new File(args[0])).length()).append(" -> ").append((new File(args[3])).length()).toString());
+        if(args.length == 5)
+        {
+            SQuantFeatLib squantfeatlib2 = SQuantFeatLib.load(args[3]);
+            if(squantfeatlib2 == null)
+                return;
+            double d3 = (new BLinTagLearn(bpos.proj, bpos.gold, squantfeatlib2)).tagAccuracy();
+            System.out.println((new StringBuilder()).append("Precision: ").append(d).append(" -> ").append(d3).toString());
+            System.out.println((new StringBuilder()).append("Delta: ").append(d3 - d).toString());
+        }
+    }
+
+    private static final double CLIP[] = {
+        1.0D, 0.99990000000000001D, 0.999D, 0.98999999999999999D
+    };
+}
@@ -0,0 +1,245 @@
+package edu.upenn.cis.bpos;
+
+import java.io.*;
+import java.util.*;
+
+// Several named models in one process. The models share SWordLib, with the
+// observation strings cached on its words, and SLabelLib; each model keeps
+// its own label set. The feature strings of all models are interned in one
+// pool, so a feature that two models both have is stored once. The first
+// model loaded is the default one, used when a request names no model.
+// A model is read and smoke tested without the registry lock, which is only
+// taken to publish it, so requests are never held up by a load. Requests
+// from clients go through reload(), which is off unless a model directory
+// is set and only loads files inside that directory.
+public class BModelRegistry
+{
+
+    public BModelRegistry()
+    {
+        models = new Hashtable();
+        names = new Vector();
+        strings = new Hashtable();
+    }
+
+    // The default model from the weights and lables, then the models of the
+    // list of "<name> <weights> <lables>" lines, if any. Returns null if a
+    // model fails to load.
+    public static BModelRegistry open(String s, String s1, String s2)
+    {
+        BModelRegistry bmodelregistry = new BModelRegistry();
+        String s3 = bmodelregistry.load(DEFAULT, s1, s2);
+        if(s3 != null)
+        {
+            System.err.println(s3);
+            return null;
+        }
+        if(s == null)
+            return bmodelregistry;
+        try
+        {
+            BufferedReader bufferedreader = new BufferedReader(new FileReader(s));
+            System.err.println((new StringBuilder()).append("Open Model List : ").append(s).toString());
+            for(String s4 = bufferedreader.readLine(); s4 != null; s4 = bufferedreader.readLine())
+            {
+                String as[] = s4.trim().split("\\s+");
+                if(as.length != 3)
+                    continue;
+                s3 = bmodelregistry.load(as[0], as[1], as[2]);
+                if(s3 != null)
+                {
+                    System.err.println((new StringBuilder()).append(as[0]).append(" : ").append(s3).toString());
+                    bufferedreader.close();
+                    return null;
+                }
+            }
+
+            bufferedreader.close();
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+            return null;
+        }
+        return bmodelregistry;
+    }
+
+    // Loads a new model under the name, or reloads the model of that name.
+    // Returns null on success or why the model was rejected.
+    public String load(String s, String s1, String s2)
+    {
+        BTaggerHolder btaggerholder = (BTaggerHolder)models.get(s);
+        if(btaggerholder != null)
+        {
+            String s3 = btaggerholder.reload(s1, s2, strings);
+            if(s3 == null)
+                prune();
+            return s3;
+        }
+        btaggerholder = new BTaggerHolder();
+        String s4 = btaggerholder.reload(s1, s2, strings);
+        if(s4 != null)
+        {
+            return s4;
+        } else
+        {
+            publish(s, btaggerholder);
+            return null;
+        }
+    }
+
+    private synchronized void publish(String s, BTaggerHolder btaggerholder)
+    {
+        if(models.put(s, btaggerholder) == null)
+            names.add(s);
+        if(defaultName == null)
+            defaultName = s;
+    }
+
+    // load() for a client request: the files are taken relative to the model
+    // directory and must not lie outside it. Returns null on success or why
+    // the model was not loaded.
+    public String reload(String s, String s1, String s2)
+    {
+        if(modelDir == null)
+            return "reload is disabled, start the server with -reload <model dir>";
+        String s3 = resolve(s1);
+        String s4 = resolve(s2);
+        if(s3 == null || s4 == null)
+            return (new StringBuilder()).append("models must be in ").append(modelDir).toString();
+        else
+            return load(s, s3, s4);
+    }
+
+    public boolean isReloadable()
+    {
+        return modelDir != null;
+    }
+
+    public void setModelDir(String s)
+        throws IOException
+    {
+        File file = new File(s);
+        if(!file.isDirectory())
+            throw new FileNotFoundException((new StringBuilder()).append(s).append(" is not a directory").toString());
+        modelDir = file.getCanonicalPath();
+    }
+
+    // The canonical path of the file under the model directory, or null.
+    private String resolve(String s)
+    {
+        File file = new File(s);
+        if(!file.isAbsolute())
+            file = new File(modelDir, s);
+        try
+        {
+            String s1 = file.getCanonicalPath();
+            return s1.startsWith((new StringBuilder()).append(modelDir).append(File.separator).toString()) ? s1 : null;
+        }
+        catch(IOException ioexception)
+        {
+            return null;
+        }
+    }
+
+    // Drops the strings that only the replaced model used.
+    private synchronized void prune()
+    {
+        Hashtable hashtable = new Hashtable(strings.size() * 2 + 1);
+        for(int i = 0; i < names.size(); i++)
+        {
+            Enumeration enumeration = getTagger((String)names.get(i)).feat.feat2id.keys();
+            while(enumeration.hasMoreElements())
+            {
+                String s = (String)enumeration.nextElement();
+                hashtable.put(s, s);
+            }
+        }
+
+        strings = hashtable;
+    }
+
+    // The holder of the named model, or of the default one for null.
+    public BTaggerHolder get(String s)
+    {
+        if(s == null || s.length() == 0)
+            s = getDefault();
+        return s != null ? (BTaggerHolder)models.get(s) : null;
+    }
+
+    public BTagger getTagger(String s)
+    {
+        BTaggerHolder btaggerholder = get(s);
+        return btaggerholder != null ? btaggerholder.get() : null;
+    }
+
+    public String getDefault()
+    {
+        return defaultName;
+    }
+
+    public synchronized String report()
+    {
+        StringBuilder stringbuilder = new StringBuilder();
+        long l = 0L;
+        for(int i = 0; i < names.size(); i++)
+        {
+            String s = (String)names.get(i);
+            BTaggerHolder btaggerholder = (BTaggerHolder)models.get(s);
+            SFeatLib sfeatlib = btaggerholder.get().feat;
+            long l1 = 0L;
+            long l2 = 0L;
+            Enumeration enumeration = sfeatlib.feat2id.keys();
+            do
+            {
+                if(!enumeration.hasMoreElements())
+                    break;
+                String s1 = (String)enumeration.nextElement();
+                long l3 = SFeatLib.stringBytes(s1);
+                l1 += l3;
+                if(isShared(s, s1))
+                    l2 += l3;
+            } while(true);
+            l += sfeatlib.getBytes() + l1 - l2;
+            stringbuilder.append(s).append(" generation ").append(btaggerholder.getGeneration()).append(", labels ").append(btaggerholder.get().target.size()).append(", features ").append(sfeatlib.getSize()).append(", bytes ").append(sfeatlib.getBytes() + l1).append(" (feature strings ").append(l1).append(", shared ").append(l2).append(")\n");
+        }
+
+        long l4 = 0L;
+        for(Enumeration enumeration1 = strings.keys(); enumeration1.hasMoreElements();)
+        {
+            String s2 = (String)enumeration1.nextElement();
+            if(isShared(null, s2))
+                l4 += SFeatLib.stringBytes(s2);
+        }
+
+        long l5 = SWordLib.getBytes();
+        stringbuilder.append("shared feature strings bytes ").append(l4).append('\n');
+        stringbuilder.append("vocabulary words ").append(SWordLib.getSize()).append(", bytes ").append(l5).append('\n');
+        stringbuilder.append("total bytes ").append(l + l4 + l5).append('\n');
+        return stringbuilder.toString();
+    }
+
+    // Whether the feature is used by another model than s, or for s == null
+    // by more than one model.
+    private boolean isShared(String s, String s1)
+    {
+        int i = 0;
+        for(int j = 0; j < names.size(); j++)
+        {
+            String s2 = (String)names.get(j);
+            if(s2.equals(s) || !getTagger(s2).feat.feat2id.containsKey(s1))
+                continue;
+            if(s != null || ++i > 1)
+                return true;
+        }
+
+        return false;
+    }
+
+    public static final String DEFAULT = "default";
+    private Hashtable models;
+    private Vector names;
+    private volatile Hashtable strings;
+    private volatile String defaultName;
+    private volatile String modelDir;
+}
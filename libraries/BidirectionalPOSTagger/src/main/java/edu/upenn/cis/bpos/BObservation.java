@@ -0,0 +1,144 @@
+package edu.upenn.cis.bpos;
+
+import java.util.Vector;
+
+// Label independent observation features of one token, i.e. the part of
+// every feature string of BLinIsland that follows the label prefix and does
+// not depend on the sockets of the neighbouring islands.
+public class BObservation
+{
+
+    public BObservation(String s, String as[], String as1[], String as2[])
+    {
+        lex = s;
+        head = as;
+        tail = as1;
+        extra = as2;
+    }
+
+    public static BObservation extract(BLinTagSample blintagsample, int i)
+    {
+        SWord sword = blintagsample.words[i];
+        String as[] = i != 0 ? sword.obsHead : sword.obsHeadFirst;
+        if(as == null)
+        {
+            as = genHead(sword.word, i == 0);
+            if(i != 0)
+                sword.obsHead = as;
+            else
+                sword.obsHeadFirst = as;
+        }
+        Vector vector = new Vector();
+        for(int j = -2; j <= 2; j++)
+        {
+            if(j == 0)
+                continue;
+            int k = i + j;
+            if(k >= 0 && k < blintagsample.words.length)
+                vector.add(getWindow(blintagsample.words[k])[j >= 0 ? j + 1 : j + 2]);
+            else
+            if(k != -2 && k != blintagsample.words.length + 1)
+                vector.add(BOUNDARY_WINDOW[j >= 0 ? j + 1 : j + 2]);
+        }
+
+        String s = "@";
+        if(i - 1 >= 0)
+            s = blintagsample.words[i - 1].word.toLowerCase();
+        String s1 = "@";
+        if(i + 1 < blintagsample.words.length)
+            s1 = blintagsample.words[i + 1].word.toLowerCase();
+        String as1[] = new String[2];
+        as1[0] = (new StringBuilder()).append(as[0]).append("|L1X:").append(s).toString();
+        as1[1] = (new StringBuilder()).append(as[0]).append("|R1X:").append(s1).toString();
+        return new BObservation(as[0], as, toArray(vector), as1);
+    }
+
+    private static String[] genHead(String s, boolean flag)
+    {
+        Vector vector = new Vector();
+        String s1 = s.toLowerCase();
+        vector.add((new StringBuilder()).append("|X:").append(s1).toString());
+        byte abyte0[] = s1.getBytes();
+        String s2 = "";
+        String s3 = "";
+        byte byte0 = 9;
+        for(int i = 0; i < byte0; i++)
+        {
+            int j = i;
+            if(j < abyte0.length)
+            {
+                s2 = (new StringBuilder()).append(s2).append((char)abyte0[j]).toString();
+                vector.add((new StringBuilder()).append("|P:").append(s2).toString());
+            }
+            int k = abyte0.length - 1 - i;
+            if(k >= 0)
+            {
+                s3 = (new StringBuilder()).append(s3).append((char)abyte0[k]).toString();
+                vector.add((new StringBuilder()).append("|S:").append(s3).toString());
+            }
+        }
+
+        boolean flag1 = false;
+        boolean flag2 = false;
+        boolean flag3 = false;
+        abyte0 = s.getBytes();
+        for(int l = 0; l < abyte0.length; l++)
+        {
+            char c = (char)abyte0[l];
+            flag1 |= Character.isDigit(c);
+            if(!flag || l > 0)
+                flag2 |= Character.isUpperCase(c);
+            flag3 |= c == '-';
+        }
+
+        if(flag1)
+            vector.add("|NM");
+        if(flag2)
+            vector.add("|UP");
+        if(flag3)
+            vector.add("|HF");
+        return toArray(vector);
+    }
+
+    private static String[] getWindow(SWord sword)
+    {
+        String as[] = sword.obsWindow;
+        if(as == null)
+        {
+            String s = sword.word.toLowerCase();
+            as = new String[4];
+            for(int i = 0; i < as.length; i++)
+                as[i] = (new StringBuilder()).append(WINDOW[i]).append(s).toString();
+
+            sword.obsWindow = as;
+        }
+        return as;
+    }
+
+    public static BObservation[] extractAll(BLinTagSample blintagsample)
+    {
+        BObservation abobservation[] = new BObservation[blintagsample.words.length];
+        for(int i = 0; i < abobservation.length; i++)
+            abobservation[i] = extract(blintagsample, i);
+
+        return abobservation;
+    }
+
+    private static String[] toArray(Vector vector)
+    {
+        String as[] = new String[vector.size()];
+        vector.copyInto(as);
+        return as;
+    }
+
+    private static final String WINDOW[] = {
+        "|L2X:", "|L1X:", "|R1X:", "|R2X:"
+    };
+    private static final String BOUNDARY_WINDOW[] = {
+        "|L2X:@", "|L1X:@", "|R1X:@", "|R2X:@"
+    };
+    public String lex;
+    public String head[];
+    public String tail[];
+    public String extra[];
+}
@@ -0,0 +1,128 @@
+package edu.upenn.cis.bpos;
+
+import java.io.*;
+
+// Writer of tagged sentences that formats straight into one reusable byte
+// buffer and hands it to the stream in 64K blocks. The bytes of a word or a
+// label are encoded once, in the platform charset that bpos also reads its
+// input with, and kept on the SWord or SLabel, so a token costs two array
+// copies instead of a string, an encode and a synchronized PrintStream
+// call. TAGGED writes "word_TAG word_TAG" lines as
+// bpos always did, CONLL writes one "word\t\tTAG" line per word and a blank
+// line after each sentence, as BLinTagSample.displayConll().
+public class BOutput
+{
+
+    public BOutput(OutputStream outputstream, int i)
+    {
+        out = outputstream;
+        format = i;
+        buffer = new byte[BUFFER_SIZE];
+        size = 0;
+        newline = System.getProperty("line.separator").getBytes();
+    }
+
+    // Standard output, bypassing System.out.
+    public static BOutput stdout(int i)
+    {
+        return new BOutput(new FileOutputStream(FileDescriptor.out), i);
+    }
+
+    public void write(SWord asword[], SLabel aslabel[])
+        throws IOException
+    {
+        for(int i = 0; i < asword.length; i++)
+            if(format == CONLL)
+            {
+                put(bytes(asword[i]));
+                put((byte)9);
+                put((byte)9);
+                put(bytes(aslabel[i]));
+                put(newline);
+            } else
+            {
+                if(i > 0)
+                    put((byte)32);
+                put(bytes(asword[i]));
+                put((byte)95);
+                put(bytes(aslabel[i]));
+            }
+
+        put(newline);
+    }
+
+    public void flush()
+        throws IOException
+    {
+        if(size > 0)
+        {
+            out.write(buffer, 0, size);
+            size = 0;
+        }
+        out.flush();
+    }
+
+    private void put(byte abyte0[])
+        throws IOException
+    {
+        if(size + abyte0.length > buffer.length)
+        {
+            out.write(buffer, 0, size);
+            size = 0;
+            if(abyte0.length > buffer.length)
+            {
+                out.write(abyte0);
+                return;
+            }
+        }
+        System.arraycopy(abyte0, 0, buffer, size, abyte0.length);
+        size += abyte0.length;
+    }
+
+    private void put(byte byte0)
+        throws IOException
+    {
+        if(size == buffer.length)
+        {
+            out.write(buffer, 0, size);
+            size = 0;
+        }
+        buffer[size++] = byte0;
+    }
+
+    private static byte[] bytes(SWord sword)
+    {
+        byte abyte0[] = sword.encoded;
+        if(abyte0 == null)
+        {
+            abyte0 = encode(sword.word);
+            sword.encoded = abyte0;
+        }
+        return abyte0;
+    }
+
+    private static byte[] bytes(SLabel slabel)
+    {
+        byte abyte0[] = slabel.encoded;
+        if(abyte0 == null)
+        {
+            abyte0 = encode(slabel.lbl);
+            slabel.encoded = abyte0;
+        }
+        return abyte0;
+    }
+
+    private static byte[] encode(String s)
+    {
+        return s.getBytes();
+    }
+
+    public static final int TAGGED = 0;
+    public static final int CONLL = 1;
+    private static final int BUFFER_SIZE = 0x10000;
+    private OutputStream out;
+    private int format;
+    private byte buffer[];
+    private int size;
+    private byte newline[];
+}
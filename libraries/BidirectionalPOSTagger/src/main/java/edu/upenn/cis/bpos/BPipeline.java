@@ -0,0 +1,242 @@
+package edu.upenn.cis.bpos;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.*;
+
+// Batch tagging as a three stage pipeline: one reader, a number of decode
+// workers and one writer, connected by bounded queues. At most <queue size>
+// sentences are between the reader and the writer at any time, so a slow
+// disk or consumer holds the reader back instead of filling the memory.
+// The writer puts the sentences back in input order, and the output is
+// the same as that of bpos. With -raw the reader splits and tokenizes raw
+// text with BTokenizer, so untokenized text is tagged in one pass.
+public class BPipeline
+{
+
+    public BPipeline(BTagger btagger, int i, int j)
+    {
+        tagger = btagger;
+        nworker = i;
+        capacity = j;
+    }
+
+    public static void main(String args[])
+    {
+        boolean flag = args.length > 0 && args[0].equals("-raw");
+        int i = flag ? 1 : 0;
+        if(args.length - i != 5 && args.length - i != 6)
+        {
+            System.out.println("Usage: java -classpath $CLASSPATH edu.upenn.cis.bpos.BPipeline [-raw] <beam width[:margin]> <test file> <weights> <lables> <threads> [<queue size>]");
+            System.out.println("For example: java -classpath $CLASSPATH edu.upenn.cis.bpos.BPipeline 1 data/sample.raw data/k3.fea data/postag.txt 4 > sample.hypo");
+            System.out.println("With -raw the test file is untokenized text, or - for standard input.");
+            return;
+        }
+        SWordLib.init();
+        SLabelLib.init();
+        BLinTagLearn.setBeam(args[i]);
+        BTagger btagger = BTagger.load(args[i + 2], args[i + 3]);
+        if(btagger == null)
+            return;
+        int j = args.length - i != 6 ? 1024 : Integer.parseInt(args[i + 5]);
+        BPipeline bpipeline = new BPipeline(btagger, Integer.parseInt(args[i + 4]), j);
+        try
+        {
+            System.err.println((new StringBuilder()).append("Open Test File : ").append(args[i + 1]).toString());
+            BufferedWriter bufferedwriter = new BufferedWriter(new OutputStreamWriter(System.out), 0x10000);
+            long l;
+            if(flag)
+            {
+                ReadableByteChannel readablebytechannel = args[i + 1].equals("-") ? Channels.newChannel(System.in) : (new FileInputStream(args[i + 1])).getChannel();
+                l = bpipeline.run(new BTokenizer(readablebytechannel), bufferedwriter);
+                readablebytechannel.close();
+            } else
+            {
+                BufferedReader bufferedreader = new BufferedReader(new FileReader(args[i + 1]));
+                l = bpipeline.run(bufferedreader, bufferedwriter);
+                bufferedreader.close();
+            }
+            bufferedwriter.flush();
+            System.err.println((new StringBuilder()).append("").append(l).append(" samples tagged").toString());
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+        }
+    }
+
+    public long run(BufferedReader bufferedreader, Writer writer)
+        throws IOException
+    {
+        return run(bufferedreader, null, writer);
+    }
+
+    // Tags the sentences of the tokenizer, one line per sentence.
+    public long run(BTokenizer btokenizer, Writer writer)
+        throws IOException
+    {
+        return run(null, btokenizer, writer);
+    }
+
+    private long run(final BufferedReader bufferedreader, final BTokenizer btokenizer, Writer writer)
+        throws IOException
+    {
+        final ArrayBlockingQueue input = new ArrayBlockingQueue(capacity);
+        ArrayBlockingQueue output = new ArrayBlockingQueue(capacity);
+        final Semaphore semaphore = new Semaphore(capacity);
+        final IOException aioexception[] = new IOException[1];
+        Thread thread = new Thread(new Runnable() {
+
+            public void run()
+            {
+                long l1 = 0L;
+                try
+                {
+                    for(String s = read(); s != null; s = read())
+                    {
+                        semaphore.acquire();
+                        input.put(new Item(l1++, s));
+                    }
+
+                }
+                catch(IOException ioexception)
+                {
+                    aioexception[0] = ioexception;
+                }
+                catch(InterruptedException interruptedexception)
+                {
+                    return;
+                }
+                try
+                {
+                    semaphore.acquire();
+                    input.put(new Item(l1, null));
+                }
+                catch(InterruptedException interruptedexception1)
+                {
+                    return;
+                }
+            }
+
+            private String read()
+                throws IOException
+            {
+                return bufferedreader == null ? btokenizer.readSentence() : bufferedreader.readLine();
+            }
+
+        }, "bpos-reader");
+        thread.setDaemon(true);
+        thread.start();
+        Thread athread[] = new Thread[nworker];
+        for(int i = 0; i < nworker; i++)
+        {
+            athread[i] = new Thread(new Worker(input, output), "bpos-worker");
+            athread[i].setDaemon(true);
+            athread[i].start();
+        }
+
+        Item aitem[] = new Item[capacity];
+        String s = System.getProperty("line.separator");
+        long l = 0L;
+        try
+        {
+            do
+            {
+                Item item = aitem[(int)(l % (long)capacity)];
+                if(item != null && item.seq == l)
+                {
+                    aitem[(int)(l % (long)capacity)] = null;
+                    if(item.line == null)
+                        break;
+                    writer.write(item.line);
+                    writer.write(s);
+                    semaphore.release();
+                    l++;
+                } else
+                {
+                    Item item1 = (Item)output.take();
+                    aitem[(int)(item1.seq % (long)capacity)] = item1;
+                }
+            } while(true);
+        }
+        catch(InterruptedException interruptedexception)
+        {
+            throw new InterruptedIOException();
+        }
+        finally
+        {
+            thread.interrupt();
+            for(int j = 0; j < nworker; j++)
+                athread[j].interrupt();
+
+        }
+        if(aioexception[0] != null)
+            throw aioexception[0];
+        else
+            return l;
+    }
+
+    private class Worker
+        implements Runnable
+    {
+
+        public void run()
+        {
+            try
+            {
+                do
+                {
+                    Item item = (Item)input.take();
+                    if(item.line == null)
+                    {
+                        input.put(item);
+                        output.put(item);
+                        return;
+                    }
+                    try
+                    {
+                        item.line = BTagger.format(tagger.tag(BTagger.split(item.line)));
+                    }
+                    catch(RuntimeException runtimeexception)
+                    {
+                        System.err.println((new StringBuilder()).append("Sentence ").append(item.seq).append(" : ").append(runtimeexception.toString()).toString());
+                        item.line = "";
+                    }
+                    output.put(item);
+                } while(true);
+            }
+            catch(InterruptedException interruptedexception)
+            {
+                return;
+            }
+        }
+
+        private BlockingQueue input;
+        private BlockingQueue output;
+
+        Worker(BlockingQueue blockingqueue, BlockingQueue blockingqueue1)
+        {
+            input = blockingqueue;
+            output = blockingqueue1;
+        }
+    }
+
+    private static class Item
+    {
+
+        long seq;
+        String line;
+
+        Item(long l, String s)
+        {
+            seq = l;
+            line = s;
+        }
+    }
+
+
+    private BTagger tagger;
+    private int nworker;
+    private int capacity;
+}
@@ -0,0 +1,108 @@
+package edu.upenn.cis.bpos;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded cache of tagged sentences for servers that see the same sentence
+// many times. The entries are spread over STRIPES access ordered maps, each
+// with its own lock and its own share of the capacity, and each map drops
+// its least recently used entry when it is full. The key is the id of the
+// BTagger and the sentence, so the models of a registry do not share
+// results, and after a reload the results of the old model are no longer
+// found and age out.
+public class BResultCache
+{
+
+    public BResultCache(int i)
+    {
+        hits = new AtomicLong();
+        misses = new AtomicLong();
+        evictions = new AtomicLong();
+        final int capacity = Math.max(1, (i + STRIPES - 1) / STRIPES);
+        stripe = new LinkedHashMap[STRIPES];
+        for(int j = 0; j < STRIPES; j++)
+            stripe[j] = new LinkedHashMap(16, 0.75F, true) {
+
+                protected boolean removeEldestEntry(Map.Entry entry)
+                {
+                    if(size() <= capacity)
+                    {
+                        return false;
+                    } else
+                    {
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                }
+
+            };
+
+    }
+
+    // The tagged sentence s of the model, or null.
+    public String get(BTagger btagger, String s)
+    {
+        String s1 = key(btagger, s);
+        LinkedHashMap linkedhashmap = stripe[index(s1)];
+        String s2;
+        synchronized(linkedhashmap)
+        {
+            s2 = (String)linkedhashmap.get(s1);
+        }
+        if(s2 == null)
+            misses.incrementAndGet();
+        else
+            hits.incrementAndGet();
+        return s2;
+    }
+
+    public void put(BTagger btagger, String s, String s1)
+    {
+        String s2 = key(btagger, s);
+        LinkedHashMap linkedhashmap = stripe[index(s2)];
+        synchronized(linkedhashmap)
+        {
+            linkedhashmap.put(s2, s1);
+        }
+    }
+
+    public int size()
+    {
+        int i = 0;
+        for(int j = 0; j < STRIPES; j++)
+            synchronized(stripe[j])
+            {
+                i += stripe[j].size();
+            }
+
+        return i;
+    }
+
+    public String getMetrics()
+    {
+        StringBuilder stringbuilder = new StringBuilder();
+        stringbuilder.append("cache_hits ").append(hits.get()).append('\n');
+        stringbuilder.append("cache_misses ").append(misses.get()).append('\n');
+        stringbuilder.append("cache_evictions ").append(evictions.get()).append('\n');
+        stringbuilder.append("cache_size ").append(size()).append('\n');
+        return stringbuilder.toString();
+    }
+
+    private static String key(BTagger btagger, String s)
+    {
+        return (new StringBuilder()).append(btagger.id).append('\t').append(s).toString();
+    }
+
+    private static int index(String s)
+    {
+        int i = s.hashCode();
+        return ((i ^ i >>> 16) & 0x7fffffff) % STRIPES;
+    }
+
+    private static final int STRIPES = 16;
+    private LinkedHashMap stripe[];
+    private AtomicLong hits;
+    private AtomicLong misses;
+    private AtomicLong evictions;
+}
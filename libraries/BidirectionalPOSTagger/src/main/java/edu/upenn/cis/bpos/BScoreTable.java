@@ -0,0 +1,91 @@
+package edu.upenn.cis.bpos;
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+// Label scores of one sentence at inference. A hypothesis score depends only
+// on its position, its label and the neighbouring labels in the sockets it
+// is built on, so every (position, context) row is scored at most once per
+// label, however often the islands around the position are rebuilt. With
+// BLinTagLearn.useMatrix (-matrix) a row is scored for all labels at once
+// on first use from the SFeatMatrix of the model, which costs a dense row
+// of doubles per feature suffix.
+public class BScoreTable
+{
+
+    public BScoreTable(int i, SFeatLib sfeatlib, Vector vector)
+    {
+        feat = sfeatlib;
+        target = vector;
+        nlabel = SLabelLib.getSize();
+        matrix = BLinTagLearn.useMatrix ? sfeatlib.getMatrix() : null;
+        if(matrix != null)
+        {
+            for(int k = 0; k < vector.size(); k++)
+                if(((SLabel)vector.get(k)).id >= matrix.getLabelSize())
+                    matrix = null;
+
+        }
+        if(matrix != null)
+            nlabel = matrix.getLabelSize();
+        context = new Hashtable[i];
+        for(int j = 0; j < i; j++)
+            context[j] = new Hashtable();
+
+    }
+
+    public boolean hasContext(int i, String s)
+    {
+        return context[i].containsKey(s);
+    }
+
+    public void putContext(int i, String s, String as[])
+    {
+        if(matrix != null)
+        {
+            context[i].put(s, new Object[] {
+                matrix.getRows(as), null
+            });
+            return;
+        }
+        double ad[] = new double[nlabel];
+        for(int j = 0; j < nlabel; j++)
+            ad[j] = (0.0D / 0.0D);
+
+        context[i].put(s, new Object[] {
+            as, ad
+        });
+    }
+
+    public double getScore(int i, String s, SLabel slabel)
+    {
+        Object aobj[] = (Object[])context[i].get(s);
+        if(matrix != null)
+        {
+            if(aobj[1] == null)
+            {
+                double ad1[] = new double[nlabel];
+                matrix.score((int[])aobj[0], ad1);
+                aobj[1] = ad1;
+            }
+            return ((double[])aobj[1])[slabel.id];
+        }
+        double ad[] = (double[])aobj[1];
+        if(Double.isNaN(ad[slabel.id]))
+        {
+            String as[] = (String[])aobj[0];
+            Vector vector = new Vector(as.length);
+            for(int j = 0; j < as.length; j++)
+                vector.add((new StringBuilder()).append(slabel.lbl).append(as[j]).toString());
+
+            ad[slabel.id] = feat.getScore(vector);
+        }
+        return ad[slabel.id];
+    }
+
+    public SFeatLib feat;
+    public Vector target;
+    private SFeatMatrix matrix;
+    private int nlabel;
+    private Hashtable context[];
+}
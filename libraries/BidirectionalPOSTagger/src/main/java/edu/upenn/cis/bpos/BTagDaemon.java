@@ -0,0 +1,350 @@
+package edu.upenn.cis.bpos;
+
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.*;
+
+// Long lived tagger. The model is loaded once and sentences are read from
+// stdin or from connections to a loopback TCP port, one request per line:
+//
+//     request:  <id> TAB <tokenized sentence>
+//     response: <id> TAB OK TAB <word_TAG ...>
+//               <id> TAB DEGRADED TAB <word_TAG ...>
+//               <id> TAB ERR TAB <message>
+//
+// DEGRADED marks a sentence that ran out of its <deadline ms> and was
+// finished greedily.
+//
+// With -models more models are loaded next to the default one from a list
+// of "<name> <weights> <lables>" lines; a request names its model with
+//
+//     request:  <id> TAB <model> TAB <tokenized sentence>
+//
+// With -reload <model dir> a new model is put in service without a restart
+// by the control request
+//
+//     request:  <id> TAB RELOAD TAB <weights> TAB <lables> [TAB <model>]
+//     response: <id> TAB OK TAB reloaded
+//               <id> TAB ERR TAB <message>
+//
+// where the files are relative to, and must be inside, the model directory.
+//
+// The model is loaded and smoke tested in the background while the old one
+// keeps serving; sentences already being decoded finish on the old model.
+// A model name that is not loaded yet adds the model.
+//
+// With -cache <entries> the tagged sentences are kept in a BResultCache and
+// a sentence seen before is answered without decoding; the cache counters
+// are printed on stderr when stdin ends. With -split <max words> longer
+// sentences are decoded in parallel segments (see BLinTagLearn), and with
+// -matrix contexts are scored against all labels at once (see BScoreTable).
+// The vocabulary, with the observations cached on its words, is capped at
+// SWordLib.SERVER_WORDS words; later new words are tagged but not kept.
+//
+// A client may pipeline any number of requests; they are decoded in
+// parallel and answered in the order they were sent. Decoding runs on a
+// pool with one thread per core; with -virtual the connections are served
+// by virtual threads, so idle keep-alive clients cost almost nothing.
+public class BTagDaemon
+{
+
+    public BTagDaemon(BModelRegistry bmodelregistry, int i, ThreadFactory threadfactory)
+    {
+        models = bmodelregistry;
+        executor = Executors.newFixedThreadPool(i, BThreads.daemonThreads("bpos-decode"));
+        connections = threadfactory;
+    }
+
+    public static void main(String args[])
+    {
+        boolean flag = false;
+        String s = null;
+        String s1 = null;
+        int j = 0;
+        int i;
+        for(i = 0; i < args.length; i++)
+        {
+            if(args[i].equals("-virtual"))
+            {
+                flag = true;
+                continue;
+            }
+            if(args[i].equals("-matrix"))
+            {
+                BLinTagLearn.useMatrix = true;
+                continue;
+            }
+            if(i + 1 >= args.length)
+                break;
+            if(args[i].equals("-models"))
+            {
+                s = args[++i];
+                continue;
+            }
+            if(args[i].equals("-split"))
+            {
+                BLinTagLearn.maxLength = Integer.parseInt(args[++i]);
+                continue;
+            }
+            if(args[i].equals("-reload"))
+            {
+                s1 = args[++i];
+                continue;
+            }
+            if(!args[i].equals("-cache"))
+                break;
+            j = Integer.parseInt(args[++i]);
+        }
+
+        if(args.length - i != 4 && args.length - i != 5)
+        {
+            System.out.println("Usage: java -classpath $CLASSPATH edu.upenn.cis.bpos.BTagDaemon [-virtual] [-matrix] [-models <model list>] [-cache <entries>] [-split <max words>] [-reload <model dir>] <beam width[:margin]> <weights> <lables> <port|-> [<deadline ms>]");
+            System.out.println("For example: java -classpath $CLASSPATH edu.upenn.cis.bpos.BTagDaemon -virtual 1 data/k3.fea data/postag.txt 7070");
+            return;
+        }
+        SWordLib.init();
+        SWordLib.maxWords = SWordLib.SERVER_WORDS;
+        SLabelLib.init();
+        BLinTagLearn.setBeam(args[i]);
+        if(args.length - i == 5)
+            BLinTagLearn.deadline = Long.parseLong(args[i + 4]);
+        BModelRegistry bmodelregistry = BModelRegistry.open(s, args[i + 1], args[i + 2]);
+        if(bmodelregistry == null)
+            return;
+        System.err.print(bmodelregistry.report());
+        BTagDaemon btagdaemon = new BTagDaemon(bmodelregistry, Runtime.getRuntime().availableProcessors(), flag ? BThreads.virtualThreads("bpos-connection") : BThreads.daemonThreads("bpos-connection"));
+        if(j > 0)
+            btagdaemon.cache = new BResultCache(j);
+        try
+        {
+            if(s1 != null)
+                bmodelregistry.setModelDir(s1);
+            if(args[i + 3].equals("-"))
+            {
+                btagdaemon.serve(System.in, System.out);
+                if(btagdaemon.cache != null)
+                    System.err.print(btagdaemon.cache.getMetrics());
+            } else
+                btagdaemon.listen(Integer.parseInt(args[i + 3]));
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+        }
+    }
+
+    public void listen(int i)
+        throws IOException
+    {
+        ServerSocket serversocket = new ServerSocket(i, 50, InetAddress.getByName("127.0.0.1"));
+        System.err.println((new StringBuilder()).append("Listening on ").append(serversocket.getLocalSocketAddress()).toString());
+        do
+        {
+            final Socket socket = serversocket.accept();
+            connections.newThread(new Runnable() {
+
+                public void run()
+                {
+                    try
+                    {
+                        serve(socket.getInputStream(), socket.getOutputStream());
+                    }
+                    catch(IOException ioexception)
+                    {
+                        System.err.println(ioexception.toString());
+                    }
+                    try
+                    {
+                        socket.close();
+                    }
+                    catch(IOException ioexception1)
+                    {
+                        System.err.println(ioexception1.toString());
+                    }
+                }
+
+            }).start();
+        } while(true);
+    }
+
+    public void serve(InputStream inputstream, OutputStream outputstream)
+        throws IOException
+    {
+        BufferedReader bufferedreader = new BufferedReader(new InputStreamReader(inputstream, "UTF-8"));
+        final BufferedWriter bufferedwriter = new BufferedWriter(new OutputStreamWriter(outputstream, "UTF-8"));
+        final LinkedBlockingQueue linkedblockingqueue = new LinkedBlockingQueue(MAX_PENDING);
+        final IOException aioexception[] = new IOException[1];
+        Thread thread = connections.newThread(new Runnable() {
+
+            public void run()
+            {
+                try
+                {
+                    do
+                    {
+                        Object obj = linkedblockingqueue.take();
+                        if(obj == END)
+                            break;
+                        bufferedwriter.write((String)((Future)obj).get());
+                        bufferedwriter.write(10);
+                        if(linkedblockingqueue.isEmpty())
+                            bufferedwriter.flush();
+                    } while(true);
+                    bufferedwriter.flush();
+                }
+                catch(IOException ioexception)
+                {
+                    aioexception[0] = ioexception;
+                }
+                catch(InterruptedException interruptedexception)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                catch(ExecutionException executionexception)
+                {
+                    aioexception[0] = new IOException(executionexception.getCause().toString());
+                }
+            }
+
+        });
+        thread.start();
+        try
+        {
+            for(String s = bufferedreader.readLine(); s != null; s = bufferedreader.readLine())
+            {
+                Object obj;
+                if(isReload(s))
+                {
+                    FutureTask futuretask = new FutureTask(new Reload(s));
+                    connections.newThread(futuretask).start();
+                    obj = futuretask;
+                } else
+                {
+                    obj = executor.submit(new Request(s));
+                }
+                if(!offer(linkedblockingqueue, obj, thread))
+                {
+                    ((Future)obj).cancel(true);
+                    break;
+                }
+            }
+
+            if(offer(linkedblockingqueue, END, thread))
+                thread.join();
+        }
+        catch(InterruptedException interruptedexception)
+        {
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+        for(Object obj1 = linkedblockingqueue.poll(); obj1 != null; obj1 = linkedblockingqueue.poll())
+            if(obj1 != END)
+                ((Future)obj1).cancel(true);
+
+        if(aioexception[0] != null)
+            throw aioexception[0];
+        else
+            return;
+    }
+
+    // Waits for room in the queue as long as the writer is alive; false once
+    // it has stopped, so a dead connection does not block the reader.
+    private static boolean offer(BlockingQueue blockingqueue, Object obj, Thread thread)
+        throws InterruptedException
+    {
+        while(!blockingqueue.offer(obj, 100L, TimeUnit.MILLISECONDS))
+            if(!thread.isAlive())
+                return false;
+
+        return true;
+    }
+
+    public String respond(String s)
+    {
+        int i = s.indexOf('\t');
+        if(i < 0)
+            return "?\tERR\tmissing request id";
+        String s1 = s.substring(0, i);
+        int j = s.indexOf('\t', i + 1);
+        BTagger btagger = models.getTagger(j >= 0 ? s.substring(i + 1, j) : null);
+        if(btagger == null)
+            return (new StringBuilder()).append(s1).append("\tERR\tno model ").append(j >= 0 ? s.substring(i + 1, j) : models.getDefault()).toString();
+        String s2 = s.substring(j >= 0 ? j + 1 : i + 1);
+        String s3 = cache != null ? cache.get(btagger, s2) : null;
+        if(s3 != null)
+            return (new StringBuilder()).append(s1).append("\tOK\t").append(s3).toString();
+        try
+        {
+            BLinTagSample blintagsample = btagger.tagText(s2);
+            s3 = BTagger.format(blintagsample);
+            if(cache != null && !blintagsample.degraded)
+                cache.put(btagger, s2, s3);
+            return (new StringBuilder()).append(s1).append(blintagsample.degraded ? "\tDEGRADED\t" : "\tOK\t").append(s3).toString();
+        }
+        catch(RuntimeException runtimeexception)
+        {
+            return (new StringBuilder()).append(s1).append("\tERR\t").append(runtimeexception.toString()).toString();
+        }
+    }
+
+    private static boolean isReload(String s)
+    {
+        int i = s.indexOf('\t');
+        return i >= 0 && s.startsWith(RELOAD, i + 1);
+    }
+
+    public String reload(String s)
+    {
+        String as[] = s.split("\t");
+        if(as.length != 4 && as.length != 5)
+            return (new StringBuilder()).append(as[0]).append("\tERR\tusage: <id> RELOAD <weights> <lables> [<model>]").toString();
+        String s1 = models.reload(as.length != 5 ? models.getDefault() : as[4], as[2], as[3]);
+        if(s1 == null)
+            return (new StringBuilder()).append(as[0]).append("\tOK\treloaded").toString();
+        else
+            return (new StringBuilder()).append(as[0]).append("\tERR\t").append(s1).toString();
+    }
+
+    private class Reload
+        implements Callable
+    {
+
+        public Object call()
+        {
+            return reload(line);
+        }
+
+        private String line;
+
+        public Reload(String s)
+        {
+            line = s;
+        }
+    }
+
+    private class Request
+        implements Callable
+    {
+
+        public Object call()
+        {
+            return respond(line);
+        }
+
+        private String line;
+
+        public Request(String s)
+        {
+            line = s;
+        }
+    }
+
+
+    private static final Object END = new Object();
+    private static final int MAX_PENDING = 1024;
+    private static final String RELOAD = "RELOAD\t";
+    private BModelRegistry models;
+    public BResultCache cache;
+    private ExecutorService executor;
+    private ThreadFactory connections;
+}
@@ -0,0 +1,167 @@
+package edu.upenn.cis.bpos;
+
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A loaded model that tags one sentence at a time and can be shared by
+// several threads; decoding only reads the model. The tagger keeps its own
+// label set, so a second model can be loaded next to it without changing
+// the labels this one decodes with. Creating a tagger changes no static
+// state of BLinTagLearn; decoding expects BLinTagLearn.training and
+// BHypothesis.training to be off, as they are outside of train().
+public class BTagger
+{
+
+    public BTagger(SFeatLib sfeatlib)
+    {
+        this(sfeatlib, SLabelLib.target);
+    }
+
+    public BTagger(SFeatLib sfeatlib, Vector vector)
+    {
+        feat = sfeatlib;
+        target = vector;
+        id = ids.incrementAndGet();
+        learn = new BLinTagLearn();
+    }
+
+    public static BTagger load(String s, String s1)
+    {
+        Vector vector = SLabelLib.readLabels(s1);
+        if(vector == null || vector.size() == 0)
+            return null;
+        if(SLabelLib.target == null)
+            SLabelLib.initTargetWithLabel();
+        SFeatLib sfeatlib = bpos.loadModel(s);
+        if(sfeatlib == null)
+            return null;
+        else
+            return new BTagger(sfeatlib, vector);
+    }
+
+    public BLinTagSample tag(BLinTagSample blintagsample)
+    {
+        if(blintagsample.allowed != null)
+            restrict(blintagsample);
+        return learn.decode(blintagsample, BLinTagLearn.getDeadline(), feat, target);
+    }
+
+    // Tags the built-in smoke sentences and returns null if every word got
+    // one of the model's labels, or what went wrong otherwise.
+    public String validate()
+    {
+        if(target.size() == 0)
+            return "no labels";
+        if(feat.getSize() == 0)
+            return "no features";
+        try
+        {
+            for(int i = 0; i < SMOKE.length; i++)
+            {
+                BLinTagSample blintagsample = tag(split(SMOKE[i]));
+                if(blintagsample.tags == null || blintagsample.tags.length != blintagsample.words.length)
+                    return (new StringBuilder()).append("no tags for \"").append(SMOKE[i]).append("\"").toString();
+                for(int j = 0; j < blintagsample.tags.length; j++)
+                    if(blintagsample.tags[j] == null || !target.contains(blintagsample.tags[j]))
+                        return (new StringBuilder()).append("bad tag ").append(blintagsample.tags[j]).append(" for \"").append(SMOKE[i]).append("\"").toString();
+
+            }
+
+        }
+        catch(RuntimeException runtimeexception)
+        {
+            return runtimeexception.toString();
+        }
+        return null;
+    }
+
+    // Drops the allowed tags the model does not know, and the constraint of a
+    // word when none is left.
+    private void restrict(BLinTagSample blintagsample)
+    {
+        for(int i = 0; i < blintagsample.allowed.length; i++)
+        {
+            SLabel aslabel[] = blintagsample.allowed[i];
+            if(aslabel == null)
+                continue;
+            Vector vector = new Vector();
+            for(int j = 0; j < aslabel.length; j++)
+                if(target.contains(aslabel[j]))
+                    vector.add(aslabel[j]);
+
+            if(vector.size() == aslabel.length)
+                continue;
+            if(vector.size() == 0)
+            {
+                blintagsample.allowed[i] = null;
+            } else
+            {
+                blintagsample.allowed[i] = new SLabel[vector.size()];
+                vector.copyInto(blintagsample.allowed[i]);
+            }
+        }
+
+    }
+
+    // Tags the tokens reusing the islands of previous, the result of an
+    // earlier retag of the same sentence before some words were replaced.
+    public BLinTagSample retag(BLinTagSample blintagsample, String as[])
+    {
+        Vector vector = new Vector();
+        vector.setSize(as.length);
+        for(int i = 0; i < as.length; i++)
+            vector.setElementAt(as[i], i);
+
+        return learn.decodeIncremental(new BLinTagSample(vector), blintagsample, feat, target);
+    }
+
+    public BLinTagSample tag(String as[])
+    {
+        Vector vector = new Vector();
+        vector.setSize(as.length);
+        for(int i = 0; i < as.length; i++)
+            vector.setElementAt(as[i], i);
+
+        return tag(new BLinTagSample(vector));
+    }
+
+    public BLinTagSample tagText(String s)
+    {
+        if(s.trim().length() == 0)
+            return new BLinTagSample(new SWord[0]);
+        else
+            return tag(split(s));
+    }
+
+    public String tagLine(String s)
+    {
+        return format(tagText(s));
+    }
+
+    public static String[] split(String s)
+    {
+        return s.trim().split(" ");
+    }
+
+    public static String format(BLinTagSample blintagsample)
+    {
+        StringBuilder stringbuilder = new StringBuilder();
+        for(int i = 0; i < blintagsample.words.length; i++)
+        {
+            if(i > 0)
+                stringbuilder.append(" ");
+            stringbuilder.append(blintagsample.words[i]).append("_").append(blintagsample.tags[i]);
+        }
+
+        return stringbuilder.toString();
+    }
+
+    private static final String SMOKE[] = {
+        "The quick brown fox jumps over the lazy dog .", "He said , `` It 's 10 % higher than in 1999 . ''"
+    };
+    private static final AtomicInteger ids = new AtomicInteger();
+    public SFeatLib feat;
+    public Vector target;
+    public int id;
+    private BLinTagLearn learn;
+}
@@ -0,0 +1,62 @@
+package edu.upenn.cis.bpos;
+
+import java.util.Hashtable;
+
+// The current model of a running server. reload() loads a new model next to
+// the current one, tags the smoke sentences with it and only then swaps it
+// in with a single volatile write. Callers take get() once per request, so a
+// sentence that is being tagged during the swap finishes on the old model,
+// and a model that fails to load or to validate is never served.
+public class BTaggerHolder
+{
+
+    public BTaggerHolder(BTagger btagger)
+    {
+        tagger = btagger;
+        generation = 1;
+    }
+
+    public BTaggerHolder()
+    {
+        tagger = null;
+        generation = 0;
+    }
+
+    public BTagger get()
+    {
+        return tagger;
+    }
+
+    public int getGeneration()
+    {
+        return generation;
+    }
+
+    // Returns null when the new model is in use, or why it was rejected.
+    public String reload(String s, String s1)
+    {
+        return reload(s, s1, null);
+    }
+
+    // As reload(s, s1), sharing the feature strings of the new model through
+    // the given pool before it is swapped in.
+    public synchronized String reload(String s, String s1, Hashtable hashtable)
+    {
+        long l = System.currentTimeMillis();
+        BTagger btagger = BTagger.load(s, s1);
+        if(btagger == null)
+            return (new StringBuilder()).append("cannot load ").append(s).append(" with ").append(s1).toString();
+        String s2 = btagger.validate();
+        if(s2 != null)
+            return (new StringBuilder()).append("smoke test failed: ").append(s2).toString();
+        if(hashtable != null)
+            btagger.feat.intern(hashtable);
+        tagger = btagger;
+        generation++;
+        System.err.println((new StringBuilder()).append("Model ").append(generation).append(" : ").append(s).append(" loaded in ").append(System.currentTimeMillis() - l).append(" ms").toString());
+        return null;
+    }
+
+    private volatile BTagger tagger;
+    private volatile int generation;
+}
@@ -0,0 +1,48 @@
+package edu.upenn.cis.bpos;
+
+import java.util.concurrent.ThreadFactory;
+
+// Thread factories of the tagging servers. Connections may be served by
+// virtual threads, which are looked up by reflection so that the code still
+// runs on JVMs without them; decoding always stays on platform threads.
+public class BThreads
+{
+
+    public BThreads()
+    {
+    }
+
+    public static ThreadFactory daemonThreads(final String s)
+    {
+        return new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, s);
+                thread.setDaemon(true);
+                return thread;
+            }
+
+        };
+    }
+
+    public static ThreadFactory virtualThreads(String s)
+    {
+        try
+        {
+            Object obj = (java.lang.Thread.class).getMethod("ofVirtual", new Class[0]).invoke(null, new Object[0]);
+            Class class1 = Class.forName("java.lang.Thread$Builder");
+            obj = class1.getMethod("name", new Class[] {
+                java.lang.String.class, Long.TYPE
+            }).invoke(obj, new Object[] {
+                (new StringBuilder()).append(s).append("-").toString(), new Long(0L)
+            });
+            return (ThreadFactory)class1.getMethod("factory", new Class[0]).invoke(obj, new Object[0]);
+        }
+        catch(Exception exception)
+        {
+            System.err.println("Virtual threads are not available, using platform threads");
+        }
+        return daemonThreads(s);
+    }
+}
@@ -0,0 +1,381 @@
+package edu.upenn.cis.bpos;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.*;
+import java.util.Vector;
+
+// Streaming sentence splitter and tokenizer for raw UTF-8 text, following
+// the Penn Treebank conventions of the tagger's training data: punctuation
+// and brackets are split off (brackets as -LRB- -RRB- -LSB- -RSB- -LCB-
+// -RCB-), double quotes become `` and '', clitics are split as in "do n't"
+// and "John 's", and the period is split off only at the end of a sentence.
+// A sentence ends after . ? or ! (and closing quotes or brackets) when the
+// next word does not start with a lower case letter, unless the word is a
+// known abbreviation, and at every blank line. The text is read through a
+// channel in blocks, so it is never held in memory as a whole.
+public class BTokenizer
+{
+
+    public BTokenizer(ReadableByteChannel readablebytechannel)
+    {
+        channel = readablebytechannel;
+        decoder = Charset.forName("UTF-8").newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        chars = CharBuffer.allocate(BUFFER_SIZE);
+        text = new StringBuilder();
+        pos = 0;
+        eof = false;
+    }
+
+    // The tokens of the next sentence, or null at the end of the text.
+    public String[] nextSentence()
+        throws IOException
+    {
+        Vector vector = new Vector();
+        do
+        {
+            String s = nextWord();
+            if(s == null)
+                break;
+            if(s == PARAGRAPH)
+            {
+                if(vector.size() > 0)
+                    break;
+                continue;
+            }
+            String s1 = peekWord();
+            boolean flag = endsSentence(s, s1);
+            tokenize(s, flag, vector);
+            if(flag && vector.size() > 0)
+                break;
+        } while(true);
+        if(vector.size() == 0)
+        {
+            return null;
+        } else
+        {
+            String as[] = new String[vector.size()];
+            vector.copyInto(as);
+            return as;
+        }
+    }
+
+    // The next sentence as one line of space separated tokens, or null.
+    public String readSentence()
+        throws IOException
+    {
+        String as[] = nextSentence();
+        if(as == null)
+            return null;
+        StringBuilder stringbuilder = new StringBuilder();
+        for(int i = 0; i < as.length; i++)
+        {
+            if(i > 0)
+                stringbuilder.append(' ');
+            stringbuilder.append(as[i]);
+        }
+
+        return stringbuilder.toString();
+    }
+
+    private String nextWord()
+        throws IOException
+    {
+        if(lookahead != null)
+        {
+            String s = lookahead;
+            lookahead = null;
+            return s;
+        } else
+        {
+            return readWord();
+        }
+    }
+
+    private String peekWord()
+        throws IOException
+    {
+        if(lookahead == null)
+            lookahead = readWord();
+        return lookahead;
+    }
+
+    // The next white space delimited word, PARAGRAPH for a blank line, or
+    // null at the end of the text.
+    private String readWord()
+        throws IOException
+    {
+        int i = 0;
+        do
+        {
+            if(pos >= text.length() && !fill(pos))
+                return null;
+            char c = text.charAt(pos);
+            if(!Character.isWhitespace(c))
+                break;
+            pos++;
+            if(c == '\n' && ++i == 2)
+                return PARAGRAPH;
+        } while(true);
+        int j = pos;
+        do
+        {
+            if(pos >= text.length())
+            {
+                boolean flag = fill(j);
+                j = 0;
+                if(!flag)
+                    break;
+            }
+            if(Character.isWhitespace(text.charAt(pos)))
+                break;
+            pos++;
+        } while(true);
+        return text.substring(j, pos);
+    }
+
+    // Drops the first i characters, which have been read, and appends the
+    // next block of text; false at the end of the channel.
+    private boolean fill(int i)
+        throws IOException
+    {
+        if(i > 0)
+        {
+            text.delete(0, i);
+            pos -= i;
+        }
+        while(!eof)
+        {
+            eof = channel.read(bytes) < 0;
+            bytes.flip();
+            decoder.decode(bytes, chars, eof);
+            if(eof)
+                decoder.flush(chars);
+            bytes.compact();
+            chars.flip();
+            int j = chars.remaining();
+            text.append(chars);
+            chars.clear();
+            if(j > 0)
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean endsSentence(String s, String s1)
+    {
+        int i;
+        for(i = s.length(); i > 0 && CLOSERS.indexOf(s.charAt(i - 1)) >= 0; i--);
+        if(i == 0)
+            return false;
+        char c = s.charAt(i - 1);
+        if(c != '.' && c != '?' && c != '!')
+            return false;
+        if(s1 == null || s1 == PARAGRAPH)
+            return true;
+        if(c == '.' && isAbbreviation(s.substring(0, i)))
+            return false;
+        char c1 = s1.charAt(0);
+        return !Character.isLowerCase(c1) && c1 != ',' && c1 != ';';
+    }
+
+    private static boolean isAbbreviation(String s)
+    {
+        if(s.equals("..."))
+            return false;
+        String s1 = s.substring(0, s.length() - 1);
+        if(s1.length() == 1 && Character.isLetter(s1.charAt(0)) || s1.indexOf('.') >= 0)
+            return true;
+        s1 = s1.toLowerCase();
+        for(int i = 0; i < ABBREVIATIONS.length; i++)
+            if(ABBREVIATIONS[i].equals(s1))
+                return true;
+
+        return false;
+    }
+
+    // Splits one word into tokens; flag splits off a final period.
+    private static void tokenize(String s, boolean flag, Vector vector)
+    {
+        Vector vector1 = new Vector();
+        do
+        {
+            if(s.length() == 0)
+                break;
+            if(s.startsWith("``"))
+            {
+                vector.add("``");
+                s = s.substring(2);
+                continue;
+            }
+            if(s.startsWith("\""))
+            {
+                vector.add("``");
+                s = s.substring(1);
+                continue;
+            }
+            if(s.startsWith("...") || s.startsWith("--"))
+            {
+                int i = s.startsWith("...") ? 3 : 2;
+                vector.add(s.substring(0, i));
+                s = s.substring(i);
+                continue;
+            }
+            char c = s.charAt(0);
+            if(s.length() > 1 && OPENERS.indexOf(c) >= 0)
+            {
+                vector.add(bracket(c));
+                s = s.substring(1);
+                continue;
+            }
+            if(c != '\'' || s.length() <= 1 || clitic(s) == s.length() || !Character.isLetterOrDigit(s.charAt(1)))
+                break;
+            vector.add("`");
+            s = s.substring(1);
+        } while(true);
+        do
+        {
+            if(s.length() == 0)
+                break;
+            if(s.endsWith("''") || s.endsWith("\""))
+            {
+                vector1.add("''");
+                s = s.substring(0, s.length() - (s.endsWith("''") ? 2 : 1));
+                continue;
+            }
+            if(s.length() > 3 && s.endsWith("...") || s.length() > 2 && s.endsWith("--"))
+            {
+                int j = s.endsWith("...") ? 3 : 2;
+                vector1.add(s.substring(s.length() - j));
+                s = s.substring(0, s.length() - j);
+                continue;
+            }
+            char c1 = s.charAt(s.length() - 1);
+            if(s.length() > 1 && TRAILERS.indexOf(c1) >= 0)
+            {
+                vector1.add(bracket(c1));
+                s = s.substring(0, s.length() - 1);
+                continue;
+            }
+            if(c1 == '.' && flag && s.length() > 1 && !isAbbreviation(s))
+            {
+                vector1.add(".");
+                s = s.substring(0, s.length() - 1);
+                flag = false;
+                continue;
+            }
+            if(c1 != '\'' || s.length() <= 1 || clitic(s) > 0)
+                break;
+            vector1.add("'");
+            s = s.substring(0, s.length() - 1);
+        } while(true);
+        if(s.length() > 0)
+        {
+            int k = s.indexOf("--");
+            if(k > 0 && k + 2 < s.length())
+            {
+                splitClitic(s.substring(0, k), vector);
+                vector.add("--");
+                tokenize(s.substring(k + 2), false, vector);
+            } else
+            {
+                splitClitic(s, vector);
+            }
+        }
+        for(int l = vector1.size() - 1; l >= 0; l--)
+            vector.add(vector1.get(l));
+
+    }
+
+    private static void splitClitic(String s, Vector vector)
+    {
+        if(s.length() == 1)
+        {
+            vector.add(bracket(s.charAt(0)));
+            return;
+        }
+        String s1 = s.toLowerCase();
+        for(int i = 0; i < CONTRACTIONS.length; i += 2)
+            if(s1.equals(CONTRACTIONS[i]))
+            {
+                int j = CONTRACTIONS[i + 1].length();
+                vector.add(s.substring(0, j));
+                vector.add(s.substring(j));
+                return;
+            }
+
+        int k = clitic(s);
+        if(k > 0 && k < s.length())
+        {
+            vector.add(s.substring(0, s.length() - k));
+            vector.add(s.substring(s.length() - k));
+        } else
+        {
+            vector.add(s);
+        }
+    }
+
+    // The length of the clitic that ends the word, 0 for none.
+    private static int clitic(String s)
+    {
+        String s1 = s.toLowerCase();
+        for(int i = 0; i < CLITICS.length; i++)
+            if(s1.endsWith(CLITICS[i]))
+                return CLITICS[i].length();
+
+        return 0;
+    }
+
+    private static String bracket(char c)
+    {
+        switch(c)
+        {
+        case 40: // '('
+            return "-LRB-";
+
+        case 41: // ')'
+            return "-RRB-";
+
+        case 91: // '['
+            return "-LSB-";
+
+        case 93: // ']'
+            return "-RSB-";
+
+        case 123: // '{'
+            return "-LCB-";
+
+        case 125: // '}'
+            return "-RCB-";
+        }
+        return String.valueOf(c);
+    }
+
+    private static final int BUFFER_SIZE = 0x10000;
+    private static final String PARAGRAPH = new String("\n\n");
+    private static final String CLOSERS = "\"')]}";
+    private static final String OPENERS = "([{<$#";
+    private static final String TRAILERS = ")]}>,;:?!%";
+    private static final String CLITICS[] = {
+        "n't", "'s", "'m", "'d", "'ll", "'re", "'ve"
+    };
+    private static final String CONTRACTIONS[] = {
+        "cannot", "can", "gonna", "gon", "gotta", "got", "wanna", "wan"
+    };
+    private static final String ABBREVIATIONS[] = {
+        "mr", "mrs", "ms", "dr", "prof", "sr", "jr", "st", "mt", "gen", "gov", "sen", "rep",
+        "rev", "co", "corp", "inc", "ltd", "bros", "vs", "etc", "jan", "feb", "mar", "apr",
+        "jun", "jul", "aug", "sep", "sept", "oct", "nov", "dec", "no", "fig"
+    };
+    private ReadableByteChannel channel;
+    private CharsetDecoder decoder;
+    private ByteBuffer bytes;
+    private CharBuffer chars;
+    private StringBuilder text;
+    private int pos;
+    private boolean eof;
+    private String lookahead;
+}
@@ -14,6 +14,14 @@ public class SFeatLib
         init();
     }
 
+    // For subclasses that set up their own tables, without the large
+    // initial tables of init().
+    protected SFeatLib(Hashtable hashtable, Vector vector)
+    {
+        feat2id = hashtable;
+        id2feat = vector;
+    }
+
     public SFeatLib(SFeatLib sfeatlib)
     {
         init();
@@ -26,6 +34,16 @@ public class SFeatLib
 
     }
 
+    public SFeatLib snapshot()
+    {
+        SFeatLib sfeatlib = new SFeatLib();
+        sfeatlib.id2feat.ensureCapacity(id2feat.size());
+        for(int i = 0; i < id2feat.size(); i++)
+            sfeatlib.id2feat.add(new SFeat((SFeat)id2feat.get(i)));
+
+        return sfeatlib;
+    }
+
     public void init()
     {
         feat2id = new Hashtable(FEAT_HASH_INIT);
@@ -59,6 +77,22 @@ public class SFeatLib
         System.err.println((new StringBuilder()).append("").append(id2feat.size()).append(" features loaded").toString());
     }
 
+    public void saveFeatTable(String s)
+    {
+        try
+        {
+            PrintWriter printwriter = new PrintWriter(new BufferedWriter(new FileWriter(s)));
+            for(int i = 0; i < id2feat.size(); i++)
+                printwriter.println((new StringBuilder()).append("").append(i).append(" ").append(((SFeat)id2feat.get(i)).featstr).append(" ").append(((SFeat)id2feat.get(i)).weight).toString());
+
+            printwriter.close();
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+        }
+    }
+
     private void setWeight(int i, double d)
     {
         SFeat sfeat = (SFeat)id2feat.get(i);
@@ -91,7 +125,7 @@ public class SFeatLib
         }
     }
 
-    private int getFeatID(String s)
+    protected int getFeatID(String s)
     {
         Integer integer = (Integer)feat2id.get(s);
         if(integer != null)
@@ -109,6 +143,74 @@ public class SFeatLib
             return ((SFeat)id2feat.get(i)).weight;
     }
 
+    public double weight(int i)
+    {
+        return ((SFeat)id2feat.get(i)).weight;
+    }
+
+    public int getSize()
+    {
+        return id2feat.size();
+    }
+
+    // Estimated heap bytes of the tables and weights, not counting the
+    // feature strings themselves, which several models may share.
+    public long getBytes()
+    {
+        long l = (long)feat2id.size() * ENTRY_BYTES + (long)id2feat.size() * FEAT_BYTES;
+        if(matrix != null)
+            l += matrix.getBytes();
+        return l;
+    }
+
+    // getBytes() plus the feature strings, the estimated heap bytes of the
+    // model when it is the only one loaded.
+    public long getResidentBytes()
+    {
+        long l = getBytes();
+        for(Enumeration enumeration = feat2id.keys(); enumeration.hasMoreElements();)
+            l += stringBytes((String)enumeration.nextElement());
+
+        return l;
+    }
+
+    public static long stringBytes(String s)
+    {
+        return STRING_BYTES + 2L * (long)s.length();
+    }
+
+    // Replaces every feature string by the equal one already in the pool,
+    // adding the strings the pool does not have yet.
+    public void intern(Hashtable hashtable)
+    {
+        Hashtable hashtable1 = new Hashtable(feat2id.size() * 2 + 1);
+        Enumeration enumeration = feat2id.keys();
+        do
+        {
+            if(!enumeration.hasMoreElements())
+                break;
+            String s = (String)enumeration.nextElement();
+            String s1 = (String)hashtable.get(s);
+            if(s1 == null)
+            {
+                hashtable.put(s, s);
+                s1 = s;
+            }
+            Integer integer = (Integer)feat2id.get(s);
+            hashtable1.put(s1, integer);
+            if(integer.intValue() < id2feat.size())
+                ((SFeat)id2feat.get(integer.intValue())).featstr = s1;
+        } while(true);
+        feat2id = hashtable1;
+    }
+
+    public synchronized SFeatMatrix getMatrix()
+    {
+        if(matrix == null)
+            matrix = new SFeatMatrix(this);
+        return matrix;
+    }
+
     public double getScore(Vector vector)
     {
         double d = 0.0D;
@@ -152,6 +254,8 @@ public class SFeatLib
                 int k = getFeatID(s);
                 if(k == -1)
                     k = regFeat(s);
+                else
+                    ((SFeat)id2feat.get(k)).freq++;
                 SFeat sfeat = (SFeat)id2feat.get(k);
                 sfeat.updateCmlwt(i);
                 sfeat.weight += (double)j * d;
@@ -169,6 +273,8 @@ public class SFeatLib
             int k = getFeatID(s);
             if(k == -1)
                 k = regFeat(s);
+            else
+                ((SFeat)id2feat.get(k)).freq++;
             SFeat sfeat = (SFeat)id2feat.get(k);
             sfeat.updateCmlwt(i);
             sfeat.weight += d;
@@ -186,11 +292,25 @@ public class SFeatLib
 
     public void saveWeight(String s, int i)
     {
+        saveWeight(s, i, 0, 0.0D);
+    }
+
+    public void saveWeight(String s, int i, int j, double d)
+    {
+        int k = 0;
         try
         {
             PrintWriter printwriter = new PrintWriter(new FileOutputStream(s));
-            for(int j = 0; j < id2feat.size(); j++)
-                printwriter.println((new StringBuilder()).append("").append(j).append(" ").append(((SFeat)id2feat.get(j)).featstr).append(" ").append(((SFeat)id2feat.get(j)).updateCmlwt(i)).toString());
+            for(int l = 0; l < id2feat.size(); l++)
+            {
+                SFeat sfeat = (SFeat)id2feat.get(l);
+                double d1 = sfeat.updateCmlwt(i);
+                if(sfeat.freq >= j && Math.abs(d1) >= d)
+                {
+                    printwriter.println((new StringBuilder()).append("").append(k).append(" ").append(sfeat.featstr).append(" ").append(d1).toString());
+                    k++;
+                }
+            }
 
             printwriter.close();
         }
@@ -198,6 +318,26 @@ public class SFeatLib
         {
             System.err.println(filenotfoundexception.toString());
         }
+        if(k < id2feat.size())
+            System.err.println((new StringBuilder()).append("").append(k).append(" of ").append(id2feat.size()).append(" features saved to ").append(s).toString());
+    }
+
+    public SFeatLib prune(int i, double d)
+    {
+        SFeatLib sfeatlib = new SFeatLib();
+        for(int j = 0; j < id2feat.size(); j++)
+        {
+            SFeat sfeat = (SFeat)id2feat.get(j);
+            if(sfeat.freq >= i && Math.abs(sfeat.weight) >= d)
+            {
+                SFeat sfeat1 = (SFeat)sfeatlib.id2feat.get(sfeatlib.regFeat(sfeat.featstr));
+                sfeat1.weight = sfeat.weight;
+                sfeat1.freq = sfeat.freq;
+            }
+        }
+
+        sfeatlib.id2feat.trimToSize();
+        return sfeatlib;
     }
 
     public void updateCmlwt(int i)
@@ -216,10 +356,15 @@ public class SFeatLib
             sfeat.weight = sfeat.cmlwt;
         }
 
+        matrix = null;
     }
 
     private static int FEAT_HASH_INIT = 0xf4240;
     public Hashtable feat2id;
     public Vector id2feat;
+    private SFeatMatrix matrix;
+    private static final long ENTRY_BYTES = 48L;
+    private static final long FEAT_BYTES = 56L;
+    private static final long STRING_BYTES = 40L;
 
 }
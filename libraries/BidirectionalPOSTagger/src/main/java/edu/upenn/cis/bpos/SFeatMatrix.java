@@ -0,0 +1,107 @@
+package edu.upenn.cis.bpos;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+// The weights of a feature table as a matrix with one row per label
+// independent feature suffix and one column per label. A feature string is
+// always a label followed by a suffix that starts with '|', so scoring a
+// context against all labels becomes one row lookup per suffix and an
+// add of contiguous rows. The inner loop of score() is a plain counted loop
+// over two double arrays, which HotSpot compiles to SIMD adds.
+public class SFeatMatrix
+{
+
+    public SFeatMatrix(SFeatLib sfeatlib)
+    {
+        nlabel = SLabelLib.getSize();
+        suffix2row = new Hashtable();
+        Enumeration enumeration = sfeatlib.feat2id.keys();
+        do
+        {
+            if(!enumeration.hasMoreElements())
+                break;
+            String s = (String)enumeration.nextElement();
+            int i = s.indexOf('|');
+            if(i > 0 && SLabelLib.label2id.get(s.substring(0, i)) != null)
+            {
+                String s1 = s.substring(i);
+                if(suffix2row.get(s1) == null)
+                    suffix2row.put(s1, new Integer(suffix2row.size()));
+            }
+        } while(true);
+        weight = new double[suffix2row.size() * nlabel];
+        enumeration = sfeatlib.feat2id.keys();
+        do
+        {
+            if(!enumeration.hasMoreElements())
+                break;
+            String s2 = (String)enumeration.nextElement();
+            int j = s2.indexOf('|');
+            if(j > 0)
+            {
+                Integer integer = (Integer)SLabelLib.label2id.get(s2.substring(0, j));
+                if(integer != null)
+                {
+                    int k = ((Integer)suffix2row.get(s2.substring(j))).intValue();
+                    weight[k * nlabel + integer.intValue()] = sfeatlib.weight(((Integer)sfeatlib.feat2id.get(s2)).intValue());
+                }
+            }
+        } while(true);
+    }
+
+    public int[] getRows(String as[])
+    {
+        int ai[] = new int[as.length];
+        int i = 0;
+        for(int j = 0; j < as.length; j++)
+        {
+            Integer integer = (Integer)suffix2row.get(as[j]);
+            if(integer != null)
+                ai[i++] = integer.intValue();
+        }
+
+        if(i == ai.length)
+        {
+            return ai;
+        } else
+        {
+            int ai1[] = new int[i];
+            System.arraycopy(ai, 0, ai1, 0, i);
+            return ai1;
+        }
+    }
+
+    public void score(int ai[], double ad[])
+    {
+        int i = nlabel;
+        double ad1[] = weight;
+        for(int j = 0; j < ai.length; j++)
+        {
+            int k = ai[j] * i;
+            for(int l = 0; l < i; l++)
+                ad[l] += ad1[k + l];
+
+        }
+
+    }
+
+    public int getLabelSize()
+    {
+        return nlabel;
+    }
+
+    public int getRowSize()
+    {
+        return suffix2row.size();
+    }
+
+    public long getBytes()
+    {
+        return 8L * (long)weight.length;
+    }
+
+    private int nlabel;
+    private Hashtable suffix2row;
+    private double weight[];
+}
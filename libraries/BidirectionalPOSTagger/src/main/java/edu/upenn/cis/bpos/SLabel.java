@@ -26,4 +26,5 @@ public class SLabel
 
     public String lbl;
     public int id;
+    public volatile byte encoded[];
 }
@@ -20,7 +20,7 @@ public class SLabelLib
         id2label = new Vector();
     }
 
-    public static int getLabelID(String s)
+    public static synchronized int getLabelID(String s)
     {
         Integer integer = (Integer)label2id.get(s);
         if(integer != null)
@@ -77,6 +77,12 @@ public class SLabelLib
 
     public static void loadLabels(String s)
     {
+        readLabels(s);
+    }
+
+    public static Vector readLabels(String s)
+    {
+        Vector vector = new Vector();
         try
         {
             BufferedReader bufferedreader = new BufferedReader(new FileReader(s));
@@ -85,7 +91,9 @@ public class SLabelLib
             {
                 String s2 = s1.trim();
                 String as[] = s2.split("\\s+");
-                getSLabel(as[0]);
+                SLabel slabel = getSLabel(as[0]);
+                if(!vector.contains(slabel))
+                    vector.add(slabel);
             }
 
             bufferedreader.close();
@@ -93,11 +101,14 @@ public class SLabelLib
         catch(FileNotFoundException filenotfoundexception)
         {
             System.err.println(filenotfoundexception.toString());
+            return null;
         }
         catch(IOException ioexception)
         {
             System.err.println(ioexception.toString());
+            return null;
         }
+        return vector;
     }
 
     public static void initTargetWithLabel()
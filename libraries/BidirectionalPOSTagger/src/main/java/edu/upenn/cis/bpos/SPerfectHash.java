@@ -0,0 +1,210 @@
+package edu.upenn.cis.bpos;
+
+import java.io.*;
+
+// Minimal perfect hash over a fixed set of feature strings (hash and
+// displace). Every key of the set maps to its own slot in [0, size); the
+// fingerprint stored in the slot rejects strings that are not in the set.
+// The strings themselves are not kept.
+public class SPerfectHash
+{
+
+    private SPerfectHash()
+    {
+    }
+
+    public static SPerfectHash build(String as[])
+    {
+        long l = 0L;
+        do
+        {
+            SPerfectHash sperfecthash = new SPerfectHash();
+            if(sperfecthash.build(as, l))
+                return sperfecthash;
+            System.err.println((new StringBuilder()).append("Perfect hash failed with seed ").append(l).append(", retrying").toString());
+            l++;
+        } while(true);
+    }
+
+    private boolean build(String as[], long l)
+    {
+        seed = l;
+        size = as.length;
+        nbucket = size / BUCKET_LOAD + 1;
+        disp = new int[nbucket];
+        fprint = new int[size];
+        if(size == 0)
+            return true;
+        long al[] = new long[size];
+        long al1[] = new long[size];
+        int ai[] = new int[nbucket + 1];
+        for(int i = 0; i < size; i++)
+        {
+            al[i] = hash(as[i], seed);
+            al1[i] = mix(al[i] + 0x9e3779b97f4a7c15L);
+            ai[bucket(al[i]) + 1]++;
+        }
+
+        int j = 0;
+        for(int k = 0; k < nbucket; k++)
+            if(ai[k + 1] > j)
+                j = ai[k + 1];
+
+        for(int i1 = 0; i1 < nbucket; i1++)
+            ai[i1 + 1] += ai[i1];
+
+        int ai1[] = new int[size];
+        int ai2[] = new int[nbucket];
+        for(int j1 = 0; j1 < size; j1++)
+        {
+            int k1 = bucket(al[j1]);
+            ai1[ai[k1] + ai2[k1]] = j1;
+            ai2[k1]++;
+        }
+
+        long l4 = Math.min(4L * (long)size + 1024L, 0x7fffffffL);
+        boolean aflag[] = new boolean[size];
+        int ai3[] = new int[j];
+        for(int l1 = j; l1 > 0; l1--)
+        {
+            for(int i2 = 0; i2 < nbucket; i2++)
+            {
+                if(ai2[i2] != l1)
+                    continue;
+                int j2 = ai[i2];
+                int k2 = 0;
+label0:
+                do
+                {
+                    if((long)k2 >= l4)
+                        return false;
+                    for(int l2 = 0; l2 < l1; l2++)
+                    {
+                        int i3 = slot(al[ai1[j2 + l2]], al1[ai1[j2 + l2]], k2);
+                        if(aflag[i3])
+                        {
+                            k2++;
+                            continue label0;
+                        }
+                        for(int j3 = 0; j3 < l2; j3++)
+                            if(ai3[j3] == i3)
+                            {
+                                k2++;
+                                continue label0;
+                            }
+
+                        ai3[l2] = i3;
+                    }
+
+                    break;
+                } while(true);
+                disp[i2] = k2;
+                for(int k3 = 0; k3 < l1; k3++)
+                {
+                    aflag[ai3[k3]] = true;
+                    fprint[ai3[k3]] = (int)(al1[ai1[j2 + k3]] >>> 32);
+                }
+
+            }
+
+        }
+
+        return true;
+    }
+
+    public int lookup(String s)
+    {
+        if(size == 0)
+            return -1;
+        long l = hash(s, seed);
+        long l1 = mix(l + 0x9e3779b97f4a7c15L);
+        int i = slot(l, l1, disp[bucket(l)]);
+        if(fprint[i] != (int)(l1 >>> 32))
+            return -1;
+        else
+            return i;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public long getBytes()
+    {
+        return 4L * (long)nbucket + 4L * (long)size;
+    }
+
+    private int bucket(long l)
+    {
+        return (int)((l >>> 33) % (long)nbucket);
+    }
+
+    private int slot(long l, long l1, int i)
+    {
+        long l2 = i / size;
+        long l3 = i % size;
+        return (int)(((l & 0x7fffffffL) + l2 * (l1 & 0x7fffffffL) + l3) % (long)size);
+    }
+
+    private static long hash(String s, long l)
+    {
+        long l1 = l ^ 0xcbf29ce484222325L;
+        for(int i = 0; i < s.length(); i++)
+        {
+            l1 ^= s.charAt(i);
+            l1 *= 0x100000001b3L;
+        }
+
+        return mix(l1);
+    }
+
+    private static long mix(long l)
+    {
+        l ^= l >>> 33;
+        l *= 0xff51afd7ed558ccdL;
+        l ^= l >>> 33;
+        l *= 0xc4ceb9fe1a85ec53L;
+        l ^= l >>> 33;
+        return l;
+    }
+
+    public void write(DataOutputStream dataoutputstream)
+        throws IOException
+    {
+        dataoutputstream.writeLong(seed);
+        dataoutputstream.writeInt(size);
+        dataoutputstream.writeInt(nbucket);
+        for(int i = 0; i < nbucket; i++)
+            dataoutputstream.writeInt(disp[i]);
+
+        for(int j = 0; j < size; j++)
+            dataoutputstream.writeInt(fprint[j]);
+
+    }
+
+    public static SPerfectHash read(DataInputStream datainputstream)
+        throws IOException
+    {
+        SPerfectHash sperfecthash = new SPerfectHash();
+        sperfecthash.seed = datainputstream.readLong();
+        sperfecthash.size = datainputstream.readInt();
+        sperfecthash.nbucket = datainputstream.readInt();
+        sperfecthash.disp = new int[sperfecthash.nbucket];
+        sperfecthash.fprint = new int[sperfecthash.size];
+        for(int i = 0; i < sperfecthash.nbucket; i++)
+            sperfecthash.disp[i] = datainputstream.readInt();
+
+        for(int j = 0; j < sperfecthash.size; j++)
+            sperfecthash.fprint[j] = datainputstream.readInt();
+
+        return sperfecthash;
+    }
+
+    private static final int BUCKET_LOAD = 4;
+    private long seed;
+    private int size;
+    private int nbucket;
+    private int disp[];
+    private int fprint[];
+}
@@ -0,0 +1,307 @@
+package edu.upenn.cis.bpos;
+
+import java.io.*;
+import java.util.*;
+
+// Inference only feature table whose weights are stored as 32 bit floats or
+// as 16/8 bit integers scaled by a common factor, instead of the doubles of
+// SFeat. The SFeat objects are dropped; only the feature to id map is kept,
+// and freeze() replaces that map with an SPerfectHash.
+public class SQuantFeatLib extends SFeatLib
+{
+
+    public SQuantFeatLib(SFeatLib sfeatlib, int i, double d)
+    {
+        super(sfeatlib.feat2id, new Vector());
+        bits = i;
+        int j = sfeatlib.id2feat.size();
+        double ad[] = new double[j];
+        for(int k = 0; k < j; k++)
+            ad[k] = ((SFeat)sfeatlib.id2feat.get(k)).weight;
+
+        quantize(ad, clip(ad, d));
+    }
+
+    private SQuantFeatLib()
+    {
+        super(new Hashtable(1), new Vector());
+    }
+
+    private static double clip(double ad[], double d)
+    {
+        if(ad.length == 0)
+            return 0.0D;
+        double ad1[] = new double[ad.length];
+        for(int i = 0; i < ad.length; i++)
+            ad1[i] = Math.abs(ad[i]);
+
+        Arrays.sort(ad1);
+        int j = (int)Math.ceil(d * (double)ad1.length) - 1;
+        if(j < 0)
+            j = 0;
+        if(j >= ad1.length)
+            j = ad1.length - 1;
+        return ad1[j];
+    }
+
+    private void quantize(double ad[], double d)
+    {
+        size = ad.length;
+        if(bits == 32)
+        {
+            scale = 1.0D;
+            fweight = new float[size];
+            for(int i = 0; i < size; i++)
+                fweight[i] = (float)ad[i];
+
+            return;
+        }
+        int j = bits != 16 ? 127 : 32767;
+        scale = d <= 0.0D ? 1.0D : d / (double)j;
+        if(bits == 16)
+            sweight = new short[size];
+        else
+            bweight = new byte[size];
+        for(int k = 0; k < size; k++)
+        {
+            long l = Math.round(ad[k] / scale);
+            if(l > (long)j)
+                l = j;
+            if(l < (long)(-j))
+                l = -j;
+            if(bits == 16)
+                sweight[k] = (short)(int)l;
+            else
+                bweight[k] = (byte)(int)l;
+        }
+
+    }
+
+    public double weight(int i)
+    {
+        if(fweight != null)
+            return (double)fweight[i];
+        if(sweight != null)
+            return (double)sweight[i] * scale;
+        else
+            return (double)bweight[i] * scale;
+    }
+
+    public double getWeight(String s)
+    {
+        int i = getFeatID(s);
+        if(i == -1)
+            return 0.0D;
+        else
+            return weight(i);
+    }
+
+    public double getScore(Vector vector)
+    {
+        double d = 0.0D;
+        for(int i = 0; i < vector.size(); i++)
+        {
+            int j = getFeatID((String)vector.get(i));
+            if(j != -1)
+                d += weight(j);
+        }
+
+        return d;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public long getWeightBytes()
+    {
+        return ((long)size * (long)bits) / 8L;
+    }
+
+    private String[] getFeatStrings()
+    {
+        String as[] = new String[size];
+        Enumeration enumeration = feat2id.keys();
+        do
+        {
+            if(!enumeration.hasMoreElements())
+                break;
+            String s = (String)enumeration.nextElement();
+            as[((Integer)feat2id.get(s)).intValue()] = s;
+        } while(true);
+        return as;
+    }
+
+    public void freeze()
+    {
+        if(mph != null)
+            return;
+        String as[] = getFeatStrings();
+        mph = SPerfectHash.build(as);
+        int ai[] = new int[size];
+        for(int i = 0; i < size; i++)
+            ai[mph.lookup(as[i])] = i;
+
+        if(fweight != null)
+        {
+            float af[] = new float[size];
+            for(int j = 0; j < size; j++)
+                af[j] = fweight[ai[j]];
+
+            fweight = af;
+        }
+        if(sweight != null)
+        {
+            short aword0[] = new short[size];
+            for(int k = 0; k < size; k++)
+                aword0[k] = sweight[ai[k]];
+
+            sweight = aword0;
+        }
+        if(bweight != null)
+        {
+            byte abyte0[] = new byte[size];
+            for(int l = 0; l < size; l++)
+                abyte0[l] = bweight[ai[l]];
+
+            bweight = abyte0;
+        }
+        feat2id = new Hashtable(1);
+    }
+
+    protected int getFeatID(String s)
+    {
+        if(mph != null)
+            return mph.lookup(s);
+        else
+            return super.getFeatID(s);
+    }
+
+    // No matrix: it would expand the quantized weights back into doubles.
+    public SFeatMatrix getMatrix()
+    {
+        return null;
+    }
+
+    public long getBytes()
+    {
+        return super.getBytes() + getWeightBytes() + (mph == null ? 0L : mph.getBytes());
+    }
+
+    public long getDictBytes()
+    {
+        return mph == null ? -1L : mph.getBytes();
+    }
+
+    public void save(String s)
+    {
+        String as[] = mph == null ? getFeatStrings() : null;
+        try
+        {
+            DataOutputStream dataoutputstream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(s), BUFFER_SIZE));
+            dataoutputstream.writeInt(MAGIC);
+            dataoutputstream.writeInt(VERSION);
+            dataoutputstream.writeInt(bits);
+            dataoutputstream.writeDouble(scale);
+            dataoutputstream.writeInt(size);
+            dataoutputstream.writeBoolean(mph != null);
+            if(mph != null)
+            {
+                mph.write(dataoutputstream);
+            } else
+            {
+                for(int i = 0; i < size; i++)
+                    dataoutputstream.writeUTF(as[i]);
+
+            }
+
+            for(int j = 0; j < size; j++)
+                if(bits == 32)
+                    dataoutputstream.writeFloat(fweight[j]);
+                else
+                if(bits == 16)
+                    dataoutputstream.writeShort(sweight[j]);
+                else
+                    dataoutputstream.writeByte(bweight[j]);
+
+            dataoutputstream.close();
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+        }
+    }
+
+    public static SQuantFeatLib load(String s)
+    {
+        SQuantFeatLib squantfeatlib = new SQuantFeatLib();
+        try
+        {
+            DataInputStream datainputstream = new DataInputStream(new BufferedInputStream(new FileInputStream(s), BUFFER_SIZE));
+            System.err.println((new StringBuilder()).append("Open Quantized Feature Table : ").append(s).toString());
+            if(datainputstream.readInt() != MAGIC || datainputstream.readInt() != VERSION)
+            {
+                datainputstream.close();
+                System.err.println((new StringBuilder()).append("Not a quantized feature table : ").append(s).toString());
+                return null;
+            }
+            squantfeatlib.bits = datainputstream.readInt();
+            squantfeatlib.scale = datainputstream.readDouble();
+            int i = datainputstream.readInt();
+            squantfeatlib.size = i;
+            if(datainputstream.readBoolean())
+            {
+                squantfeatlib.feat2id = new Hashtable(1);
+                squantfeatlib.mph = SPerfectHash.read(datainputstream);
+            } else
+            {
+                squantfeatlib.feat2id = new Hashtable(Math.max(i, 1));
+                for(int j = 0; j < i; j++)
+                    squantfeatlib.feat2id.put(datainputstream.readUTF(), new Integer(j));
+
+            }
+
+            if(squantfeatlib.bits == 32)
+                squantfeatlib.fweight = new float[i];
+            else
+            if(squantfeatlib.bits == 16)
+                squantfeatlib.sweight = new short[i];
+            else
+                squantfeatlib.bweight = new byte[i];
+            for(int k = 0; k < i; k++)
+                if(squantfeatlib.bits == 32)
+                    squantfeatlib.fweight[k] = datainputstream.readFloat();
+                else
+                if(squantfeatlib.bits == 16)
+                    squantfeatlib.sweight[k] = datainputstream.readShort();
+                else
+                    squantfeatlib.bweight[k] = datainputstream.readByte();
+
+            datainputstream.close();
+        }
+        catch(FileNotFoundException filenotfoundexception)
+        {
+            System.err.println(filenotfoundexception.toString());
+            return null;
+        }
+        catch(IOException ioexception)
+        {
+            System.err.println(ioexception.toString());
+            return null;
+        }
+        System.err.println((new StringBuilder()).append("").append(squantfeatlib.size).append(" features loaded, ").append(squantfeatlib.bits).append(" bit weights").toString());
+        return squantfeatlib;
+    }
+
+    private static final int MAGIC = 0x42514654;
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 0x100000;
+    public int bits;
+    public double scale;
+    private int size;
+    private float fweight[];
+    private short sweight[];
+    private byte bweight[];
+    private SPerfectHash mph;
+}
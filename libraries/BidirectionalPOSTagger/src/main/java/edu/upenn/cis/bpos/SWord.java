@@ -25,4 +25,8 @@ public class SWord
 
     public String word;
     public int id;
+    public volatile String obsHead[];
+    public volatile String obsHeadFirst[];
+    public volatile String obsWindow[];
+    public volatile byte encoded[];
 }
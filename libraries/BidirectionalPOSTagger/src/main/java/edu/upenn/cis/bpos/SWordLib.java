@@ -6,6 +6,7 @@ package edu.upenn.cis.bpos;// Decompiled by Jad v1.5.8g. Copyright 2001 Pavel Ko
 import java.io.*;
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SWordLib
 {
@@ -18,9 +19,10 @@ public class SWordLib
     {
         word2id = new Hashtable(WORD_HASH_INIT);
         id2word = new Vector();
+        words = new ConcurrentHashMap();
     }
 
-    public static int getWordID(String s)
+    public static synchronized int getWordID(String s)
     {
         Integer integer = (Integer)word2id.get(s);
         if(integer != null)
@@ -29,15 +31,30 @@ public class SWordLib
         } else
         {
             Integer integer1 = new Integer(id2word.size());
+            SWord sword = new SWord(s);
             word2id.put(s, integer1);
-            id2word.add(new SWord(s));
+            id2word.add(sword);
+            words.put(s, sword);
             return integer1.intValue();
         }
     }
 
+    // A vocabulary word is found without a lock. Once the vocabulary holds
+    // maxWords words a new word is not added but returned as a transient
+    // SWord, so a long running server that sees endless new tokens does not
+    // keep them, and their observation strings, for ever.
     public static SWord getSWord(String s)
     {
-        return (SWord)id2word.get(getWordID(s));
+        SWord sword = (SWord)words.get(s);
+        if(sword != null)
+            return sword;
+        synchronized(SWordLib.class)
+        {
+            if(maxWords > 0 && id2word.size() >= maxWords && !word2id.containsKey(s))
+                return new SWord(s);
+            else
+                return (SWord)id2word.get(getWordID(s));
+        }
     }
 
     public static SWord getSWord(int i)
@@ -50,6 +67,31 @@ public class SWordLib
         return id2word.size();
     }
 
+    // Estimated heap bytes of the vocabulary and of the observation strings
+    // cached on its words; they are shared by every model in the process.
+    public static long getBytes()
+    {
+        long l = 0L;
+        for(int i = 0; i < id2word.size(); i++)
+        {
+            SWord sword = (SWord)id2word.get(i);
+            l += WORD_BYTES + SFeatLib.stringBytes(sword.word) + arrayBytes(sword.obsHead) + arrayBytes(sword.obsHeadFirst) + arrayBytes(sword.obsWindow);
+        }
+
+        return l;
+    }
+
+    private static long arrayBytes(String as[])
+    {
+        if(as == null)
+            return 0L;
+        long l = 16L + 4L * (long)as.length;
+        for(int i = 0; i < as.length; i++)
+            l += SFeatLib.stringBytes(as[i]);
+
+        return l;
+    }
+
     public static String listAll()
     {
         StringBuffer stringbuffer = new StringBuffer();
@@ -100,7 +142,11 @@ public class SWordLib
     }
 
     private static int WORD_HASH_INIT = 50;
+    public static final int SERVER_WORDS = 50000;
+    public static int maxWords = 0;
+    private static final long WORD_BYTES = 88L;
     public static Hashtable word2id;
     public static Vector id2word;
+    private static ConcurrentHashMap words;
 
 }
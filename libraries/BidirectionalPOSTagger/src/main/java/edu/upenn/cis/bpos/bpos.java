@@ -16,16 +16,47 @@ public class bpos
     // TODO: Use the model/POS-Tags from jar
     public static void main(String args[])
     {
-        if(args.length != 4)
+        while(args.length > 0 && (args[0].equals("-l2r") || args[0].equals("-constrained") || args[0].equals("-conll") || args[0].equals("-matrix") || args[0].equals("-split") && args.length > 1))
         {
-            System.out.println("Usage: java -classpath $CLASSPATH edu.upenn.cis.bpos.bpos <beam width> <test file> <weights> <lables>");
+            int i = 1;
+            if(args[0].equals("-l2r"))
+                BLinTagLearn.leftToRight = true;
+            else
+            if(args[0].equals("-conll"))
+                format = BOutput.CONLL;
+            else
+            if(args[0].equals("-matrix"))
+                BLinTagLearn.useMatrix = true;
+            else
+            if(args[0].equals("-constrained"))
+            {
+                constrained = true;
+            } else
+            {
+                BLinTagLearn.maxLength = Integer.parseInt(args[1]);
+                i = 2;
+            }
+            String as[] = new String[args.length - i];
+            System.arraycopy(args, i, as, 0, as.length);
+            args = as;
+        }
+
+        if(args.length != 4 && args.length != 5)
+        {
+            System.out.println("Usage: java -classpath $CLASSPATH edu.upenn.cis.bpos.bpos [-l2r] [-constrained] [-conll] [-matrix] [-split <max words>] <beam width[:margin]> <test file> <weights> <lables> [<deadline ms>]");
+            System.out.println("       with -constrained a token of the test file may be word_TAG or word_TAG|TAG..., the tags the word may take");
+            System.out.println("       with -conll the output is one word and its tag per line, with a blank line after each sentence");
+            System.out.println("       with -matrix contexts are scored against all labels at once from a dense weight matrix, faster but larger");
+            System.out.println("       with -split sentences longer than <max words> are tagged in parallel segments");
             System.out.println("For example: java -classpath $CLASSPATH edu.upenn.cis.bpos.bpos 1 data/sample.raw data/k3.fea data/postag.txt > sample.hypo");
             return;
         } else
         {
             SWordLib.init();
             SLabelLib.init();
-            BLinTagLearn.KSOCKET = Integer.parseInt(args[0]);
+            BLinTagLearn.setBeam(args[0]);
+            if(args.length == 5)
+                BLinTagLearn.deadline = Long.parseLong(args[4]);
             predict(args[1], args[2], args[3]);
             return;
         }
@@ -68,16 +99,65 @@ public class bpos
         SLabelLib.saveLabels((new StringBuilder()).append(proj).append(".tag").toString());
     }
 
+    public static void resume(String s, String s1)
+    {
+        BCheckpoint bcheckpoint = BCheckpoint.load(s1);
+        if(bcheckpoint == null)
+            return;
+        for(int i = 0; i < bcheckpoint.labels.size(); i++)
+            SLabelLib.getSLabel((String)bcheckpoint.labels.get(i));
+
+        loadTrainingData(s);
+        SLabelLib.initTargetWithLabel();
+        BLinTagLearn blintaglearn = new BLinTagLearn(proj, train, bcheckpoint.feat);
+        blintaglearn.resume(bcheckpoint);
+        blintaglearn.train();
+        SLabelLib.saveLabels((new StringBuilder()).append(proj).append(".tag").toString());
+    }
+
+    public static void learnFromCache(String s)
+    {
+        BCorpusCache bcorpuscache = BCorpusCache.open(s);
+        if(bcorpuscache == null)
+            return;
+        SLabelLib.initTargetWithLabel();
+        SFeatLib sfeatlib = new SFeatLib();
+        BLinTagLearn blintaglearn = new BLinTagLearn(proj, bcorpuscache, sfeatlib);
+        blintaglearn.train();
+        bcorpuscache.close();
+        SLabelLib.saveLabels((new StringBuilder()).append(proj).append(".tag").toString());
+    }
+
     public static void predict(String testFile, String modelFile, String tagFile)
     {
         SLabelLib.loadLabels(tagFile);
         SLabelLib.initTargetWithLabel();
-        SFeatLib sfeatlib = new SFeatLib();
-        sfeatlib.loadFeatTable(modelFile);
+        SFeatLib sfeatlib = loadModel(modelFile);
+        if(sfeatlib == null)
+            return;
         Vector vector = new Vector();
         loadTestData(testFile, vector);
         BLinTagLearn blintaglearn = new BLinTagLearn(proj, vector, sfeatlib);
-        blintaglearn.predict();
+        blintaglearn.predict(BOutput.stdout(format));
+    }
+
+    public static SFeatLib loadModel(String s)
+    {
+        if(s.endsWith(".qfea"))
+            return SQuantFeatLib.load(s);
+        if(s.endsWith(".ckpt"))
+        {
+            BCheckpoint bcheckpoint = BCheckpoint.load(s);
+            if(bcheckpoint == null)
+                return null;
+            bcheckpoint.feat.useVotedFeat(bcheckpoint.inner);
+            return bcheckpoint.feat;
+        } else
+        {
+            SFeatLib sfeatlib = new SFeatLib();
+            sfeatlib.loadFeatTable(s);
+            return sfeatlib;
+        }
     }
 
     public static void evaluate(String s, String s1, String s2)
@@ -124,6 +204,11 @@ public class bpos
             {
                 s1 = s1.trim();
                 String as[] = s1.split(" ");
+                if(constrained)
+                {
+                    vector.add(BLinTagSample.withConstraints(as));
+                    continue;
+                }
                 Vector vector1 = new Vector();
                 vector1.setSize(as.length);
                 for(int i = 0; i < as.length; i++)
@@ -200,5 +285,7 @@ public class bpos
     public static Vector test = new Vector();
     public static Vector gold = new Vector();
     public static String proj = "proj";
+    public static boolean constrained = false;
+    public static int format = BOutput.TAGGED;
 
 }